@@ -0,0 +1,326 @@
+package benchmark;
+
+import utilities.DBConnection;
+import utilities.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Fills the {@code client_schedule} database with synthetic customers and appointments, so load tests and
+ * benchmarks can run against production-sized data. The same settings and seed always produce the same data.
+ * <p>
+ * Customers are spread evenly over the countries and, within a country, over its first-level divisions.
+ * Each customer gets a geometrically distributed number of appointments, so most have a few and some have
+ * many. Appointments start within office hours of one of the office time zones, have a type drawn from a
+ * weighted list, and a share of them deliberately overlap the customer's previous appointment.
+ * <p>
+ * Rows are written with multi-row {@code INSERT} statements of {@code generator.batchRows} rows, each batch
+ * committed on its own. The settings are system properties:
+ * <ul>
+ *     <li>{@code generator.customers}: customers to create (100000)</li>
+ *     <li>{@code generator.appointmentsPerCustomer}: mean appointments per customer (10)</li>
+ *     <li>{@code generator.types}: appointment types with weights ({@code Planning Session:5,De-Briefing:3,Follow-up:2})</li>
+ *     <li>{@code generator.zones}: office time zones appointments are made in
+ *     ({@code America/Phoenix,America/New_York,America/Toronto,Europe/London})</li>
+ *     <li>{@code generator.overlapRate}: share of appointments overlapping the previous one (0.02)</li>
+ *     <li>{@code generator.startDate} and {@code generator.days}: the dates appointments fall on
+ *     (2024-01-01, for 730 days)</li>
+ *     <li>{@code generator.batchRows}: rows per insert (1000); a statement holds at most 65,535 parameters,
+ *     so at most 6,553 rows of appointments</li>
+ *     <li>{@code generator.seed}: the random seed (42)</li>
+ * </ul>
+ * New rows get IDs after the highest existing ones, so the generator adds to a database without touching
+ * its rows, but it must be the only writer while it runs. The JMH benchmarks seed their embedded database
+ * through {@link #generate(Connection, int, double, LocalDate, long)}.
+ */
+public class DataGenerator {
+    private static final Log log = Log.get(DataGenerator.class);
+
+    private static final int customers = Integer.getInteger("generator.customers", 100_000);
+    private static final double appointmentsPerCustomer = Double.parseDouble(System.getProperty("generator.appointmentsPerCustomer", "10"));
+    private static final String types = System.getProperty("generator.types", "Planning Session:5,De-Briefing:3,Follow-up:2");
+    private static final String zones = System.getProperty("generator.zones", "America/Phoenix,America/New_York,America/Toronto,Europe/London");
+    private static final double overlapRate = Double.parseDouble(System.getProperty("generator.overlapRate", "0.02"));
+    private static final LocalDate startDate = LocalDate.parse(System.getProperty("generator.startDate", "2024-01-01"));
+    private static final int days = Integer.getInteger("generator.days", 730);
+    private static final int batchRows = Integer.getInteger("generator.batchRows", 1000);
+    private static final long seed = Long.getLong("generator.seed", 42L);
+    private static final int maxParameters = 65_535; // MySQL's limit on the placeholders of one prepared statement
+
+    private static final String createdBy = "generator";
+    private static final String[] firstNames = {"Ana", "Ben", "Chloe", "Daniel", "Emma", "Farid", "Grace", "Hiro", "Ines", "Jonas", "Kemi", "Liam", "Maya", "Noah", "Olga", "Pedro"};
+    private static final String[] lastNames = {"Anderson", "Brown", "Chen", "Dubois", "Evans", "Fischer", "Garcia", "Hughes", "Ito", "Jones", "Khan", "Lopez", "Martin", "Nguyen", "Okafor", "Patel"};
+    private static final String[] streets = {"Main St", "Oak Ave", "Maple Rd", "High St", "King St", "Park Lane", "River Rd", "Elm St"};
+
+    private static final String customerColumns = "INSERT INTO customers (Customer_ID, Customer_Name, Address, Postal_Code, Phone, Division_ID, " +
+                                                  "Create_Date, Created_By, Last_Update, Last_Updated_By) VALUES ";
+    private static final String customerRow = "(?, ?, ?, ?, ?, ?, NOW(), '" + createdBy + "', NOW(), '" + createdBy + "')";
+    private static final String appointmentColumns = "INSERT INTO appointments (Appointment_ID, Title, Description, Location, Type, Start, End, " +
+                                                     "Customer_ID, User_ID, Contact_ID, Create_Date, Created_By, Last_Update, Last_Updated_By) VALUES ";
+    private static final String appointmentRow = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), '" + createdBy + "', NOW(), '" + createdBy + "')";
+
+    public static void main(String[] args) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            generate(conn, customers, appointmentsPerCustomer, startDate, seed);
+        } finally {
+            DBConnection.closeConnection();
+        }
+    }
+
+    /**
+     * Generates customers and their appointments. The settings not given here are read from the
+     * {@code generator.*} system properties.
+     * @param conn The connection to write through; each batch is committed on it.
+     * @param customers The number of customers to create.
+     * @param appointmentsPerCustomer The mean number of appointments per customer.
+     * @param startDate The first date appointments fall on.
+     * @param seed The random seed.
+     * @return The ID of the first generated customer; the others follow it.
+     * @throws SQLException if the reference rows cannot be read or a batch fails.
+     * @throws IllegalArgumentException if {@code generator.batchRows} rows need more parameters than a statement can hold.
+     */
+    public static int generate(Connection conn, int customers, double appointmentsPerCustomer, LocalDate startDate, long seed) throws SQLException {
+        // Check both statements before writing anything, so a bad batch size cannot leave half the data behind
+        checkBatchSize(customerRow);
+        checkBatchSize(appointmentRow);
+
+        Random random = new Random(seed);
+        long startNanos = System.nanoTime();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            Map<Integer, List<Integer>> divisionsByCountry = loadDivisionsByCountry(conn);
+            int[] contactIDs = loadIDs(conn, "SELECT Contact_ID FROM contacts");
+            int[] userIDs = loadIDs(conn, "SELECT User_ID FROM users");
+            if (divisionsByCountry.isEmpty() || contactIDs.length == 0 || userIDs.length == 0) {
+                throw new SQLException("The database needs divisions, contacts and users before data can be generated.");
+            }
+
+            int firstCustomerID = maxID(conn, "SELECT MAX(Customer_ID) FROM customers") + 1;
+            int firstAppointmentID = maxID(conn, "SELECT MAX(Appointment_ID) FROM appointments") + 1;
+
+            insertCustomers(conn, random, customers, firstCustomerID, divisionsByCountry);
+            long appointments = insertAppointments(conn, random, customers, appointmentsPerCustomer, startDate,
+                    firstCustomerID, firstAppointmentID, contactIDs, userIDs);
+
+            long seconds = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000_000);
+            log.info("Generated " + customers + " customers and " + appointments + " appointments in " + seconds +
+                    " s (" + (customers + appointments) / seconds + " rows/s)");
+            return firstCustomerID;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void insertCustomers(Connection conn, Random random, int customers, int firstCustomerID,
+                                        Map<Integer, List<Integer>> divisionsByCountry) throws SQLException {
+        List<List<Integer>> countries = new ArrayList<>(divisionsByCountry.values());
+        MultiRowInsert insert = new MultiRowInsert(conn, customerColumns, customerRow, batchRows);
+        for (int i = 0; i < customers; i++) {
+            List<Integer> divisions = countries.get(random.nextInt(countries.size()));
+            insert.addRow(firstCustomerID + i,
+                    firstNames[random.nextInt(firstNames.length)] + " " + lastNames[random.nextInt(lastNames.length)],
+                    (1 + random.nextInt(9999)) + " " + streets[random.nextInt(streets.length)],
+                    String.format("%05d", random.nextInt(100_000)),
+                    String.format("%03d-%03d-%04d", random.nextInt(1000), random.nextInt(1000), random.nextInt(10_000)),
+                    divisions.get(random.nextInt(divisions.size())));
+        }
+        insert.finish();
+        log.info("Inserted " + customers + " customers");
+    }
+
+    private static long insertAppointments(Connection conn, Random random, int customers, double appointmentsPerCustomer,
+                                           LocalDate startDate, int firstCustomerID, int firstAppointmentID,
+                                           int[] contactIDs, int[] userIDs) throws SQLException {
+        WeightedTypes weightedTypes = new WeightedTypes(types);
+        List<ZoneId> zoneIDs = new ArrayList<>();
+        for (String zone : zones.split(",")) {
+            zoneIDs.add(ZoneId.of(zone.trim()));
+        }
+
+        // Geometric distribution with the configured mean: P(n) = p (1 - p)^n
+        double p = 1.0 / (appointmentsPerCustomer + 1);
+        double logFailure = Math.log(1 - p);
+
+        MultiRowInsert insert = new MultiRowInsert(conn, appointmentColumns, appointmentRow, batchRows);
+        long appointmentID = firstAppointmentID;
+        for (int c = 0; c < customers; c++) {
+            int customerID = firstCustomerID + c;
+            int count = (int) Math.floor(Math.log(1 - random.nextDouble()) / logFailure);
+            LocalDateTime previousStart = null;
+            for (int i = 0; i < count; i++) {
+                LocalDateTime start;
+                if (previousStart != null && random.nextDouble() < overlapRate) {
+                    start = previousStart.plusMinutes(15);
+                } else {
+                    ZoneId zone = zoneIDs.get(random.nextInt(zoneIDs.size()));
+                    LocalDateTime local = startDate.plusDays(random.nextInt(days))
+                            .atTime(LocalTime.of(9 + random.nextInt(8), 15 * random.nextInt(4)));
+                    start = local.atZone(zone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+                }
+                LocalDateTime end = start.plusMinutes(15 * (1 + random.nextInt(8)));
+                String type = weightedTypes.next(random);
+
+                insert.addRow(appointmentID++, type + " " + (i + 1), "Generated appointment", "Office " + (1 + random.nextInt(4)),
+                        type, Timestamp.valueOf(start), Timestamp.valueOf(end), customerID,
+                        userIDs[random.nextInt(userIDs.length)], contactIDs[random.nextInt(contactIDs.length)]);
+                previousStart = start;
+            }
+        }
+        insert.finish();
+        long inserted = appointmentID - firstAppointmentID;
+        log.info("Inserted " + inserted + " appointments");
+        return inserted;
+    }
+
+    /**
+     * Checks that a full batch of rows fits in one statement.
+     * @param row The placeholders of one row.
+     * @throws IllegalArgumentException if {@code generator.batchRows} rows need more than {@code maxParameters} parameters.
+     */
+    private static void checkBatchSize(String row) {
+        long parameters = row.chars().filter(c -> c == '?').count();
+        if (batchRows < 1 || parameters * batchRows > maxParameters) {
+            throw new IllegalArgumentException("generator.batchRows must be between 1 and " + maxParameters / parameters +
+                    " for rows of " + parameters + " parameters, but is " + batchRows);
+        }
+    }
+
+    /**
+     * Buffers rows and writes them as one {@code INSERT ... VALUES (...), (...), ...} statement per batch,
+     * committing after each one.
+     */
+    private static class MultiRowInsert {
+        private final Connection conn;
+        private final String columns;
+        private final String row;
+        private final int rowsPerStatement;
+        private final List<Object[]> rows = new ArrayList<>();
+        private PreparedStatement fullStatement; // Reused for every full batch
+        private long written;
+
+        private MultiRowInsert(Connection conn, String columns, String row, int rowsPerStatement) {
+            this.conn = conn;
+            this.columns = columns;
+            this.row = row;
+            this.rowsPerStatement = rowsPerStatement;
+        }
+
+        private void addRow(Object... values) throws SQLException {
+            rows.add(values);
+            if (rows.size() == rowsPerStatement) {
+                if (fullStatement == null) {
+                    fullStatement = conn.prepareStatement(sql(rowsPerStatement));
+                }
+                write(fullStatement);
+            }
+        }
+
+        private void finish() throws SQLException {
+            if (!rows.isEmpty()) {
+                try (PreparedStatement ps = conn.prepareStatement(sql(rows.size()))) {
+                    write(ps);
+                }
+            }
+            if (fullStatement != null) {
+                fullStatement.close();
+            }
+        }
+
+        private String sql(int rowCount) {
+            StringBuilder sql = new StringBuilder(columns.length() + rowCount * (row.length() + 2)).append(columns);
+            for (int i = 0; i < rowCount; i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+            }
+            return sql.toString();
+        }
+
+        private void write(PreparedStatement ps) throws SQLException {
+            int parameter = 1;
+            for (Object[] values : rows) {
+                for (Object value : values) {
+                    ps.setObject(parameter++, value);
+                }
+            }
+            ps.executeUpdate();
+            conn.commit();
+            written += rows.size();
+            rows.clear();
+            if (written % (rowsPerStatement * 100L) == 0) {
+                log.info("... " + written + " rows");
+            }
+        }
+    }
+
+    /**
+     * Draws appointment types according to their weights.
+     */
+    private static class WeightedTypes {
+        private final List<String> names = new ArrayList<>();
+        private final List<Double> cumulativeWeights = new ArrayList<>();
+        private double total;
+
+        private WeightedTypes(String spec) {
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.split(":");
+                total += parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1;
+                names.add(parts[0].trim());
+                cumulativeWeights.add(total);
+            }
+        }
+
+        private String next(Random random) {
+            double r = random.nextDouble() * total;
+            for (int i = 0; i < names.size(); i++) {
+                if (r < cumulativeWeights.get(i)) {
+                    return names.get(i);
+                }
+            }
+            return names.get(names.size() - 1);
+        }
+    }
+
+    private static Map<Integer, List<Integer>> loadDivisionsByCountry(Connection conn) throws SQLException {
+        Map<Integer, List<Integer>> divisionsByCountry = new TreeMap<>(); // Ordered by ID so the seed gives the same data
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT Division_ID, Country_ID FROM first_level_divisions ORDER BY Division_ID")) {
+            while (rs.next()) {
+                divisionsByCountry.computeIfAbsent(rs.getInt("Country_ID"), k -> new ArrayList<>()).add(rs.getInt("Division_ID"));
+            }
+        }
+        return divisionsByCountry;
+    }
+
+    private static int[] loadIDs(Connection conn, String query) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static int maxID(Connection conn, String query) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(query)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
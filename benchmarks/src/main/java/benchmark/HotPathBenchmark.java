@@ -0,0 +1,192 @@
+package benchmark;
+
+import DAO.AppointmentDAO;
+import model.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utilities.AppointmentIndex;
+import utilities.DBConnection;
+import utilities.ManageState;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of scheduling: appointment validation, the overlap check, mapping appointment
+ * rows from a {@link ResultSet} and the UTC to local time conversions done by the table cell factories.
+ * <p>
+ * Each fork runs against the embedded H2 database of the {@code h2} profile, seeded by {@link DataGenerator}
+ * with {@code customers} customers having {@code appointmentsPerCustomer} appointments on average, from
+ * tomorrow on for {@code generator.days} days. The candidate appointments checked by the benchmarks fall on
+ * the same days, so some of them overlap. The appointment index keeps its customers for the whole run, so the
+ * index benchmarks measure the steady state rather than reloads.
+ * <p>
+ * Run with {@code java -jar benchmarks/target/benchmarks.jar HotPathBenchmark}; change the dataset with
+ * JMH's parameter option, e.g. {@code -p customers=10000}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Ddb.profile=h2", "-Dlog.level=warn", "-Dgenerator.days=90",
+        "-DappointmentIndex.ttlMillis=86400000"})
+@State(Scope.Benchmark)
+public class HotPathBenchmark {
+    private static final ZoneId businessZone = ZoneId.of("America/New_York");
+    private static final int candidates = 1024; // A power of two, so the next candidate is a mask away
+    private static final String rowsQuery =
+            "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
+            "FROM appointments a JOIN contacts ct ON a.Contact_ID = ct.Contact_ID ORDER BY a.Appointment_ID";
+
+    @Param("1000")
+    public int customers;
+
+    @Param("20")
+    public double appointmentsPerCustomer;
+
+    @Param("42")
+    public long seed;
+
+    private final ZonedDateTime[] starts = new ZonedDateTime[candidates];
+    private final ZonedDateTime[] ends = new ZonedDateTime[candidates];
+    private final int[] customerIDs = new int[candidates];
+    private final LocalDateTime[] utcTimes = new LocalDateTime[candidates];
+    private final Map<Integer, List<Appointment>> byCustomer = new HashMap<>();
+    private final ZoneId userZone = ZoneId.systemDefault();
+    private int next;
+
+    private Connection rowsConnection;
+    private PreparedStatement rowsStatement;
+    private ResultSet rows;
+
+    /**
+     * Seeds the database, draws the candidate appointments and opens the result set read by the row mapper.
+     */
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        LocalDate firstDay = LocalDate.now(businessZone).plusDays(1);
+        int firstCustomerID;
+        try (Connection conn = DBConnection.getConnection()) {
+            firstCustomerID = DataGenerator.generate(conn, customers, appointmentsPerCustomer, firstDay, seed);
+        }
+
+        Random random = new Random(seed);
+        int days = Integer.getInteger("generator.days", 730);
+        for (int i = 0; i < candidates; i++) {
+            LocalDate day = firstDay.plusDays(random.nextInt(days));
+            LocalTime time = LocalTime.of(8 + random.nextInt(12), random.nextBoolean() ? 0 : 30);
+            starts[i] = ZonedDateTime.of(day, time, businessZone).withZoneSameInstant(ZoneOffset.UTC);
+            ends[i] = starts[i].plusMinutes(30);
+            customerIDs[i] = firstCustomerID + random.nextInt(customers);
+            utcTimes[i] = starts[i].toLocalDateTime();
+            if (!byCustomer.containsKey(customerIDs[i])) {
+                byCustomer.put(customerIDs[i], AppointmentDAO.getCustomerIntervals(customerIDs[i]));
+            }
+        }
+
+        rowsConnection = DBConnection.getConnection();
+        rowsStatement = rowsConnection.prepareStatement(rowsQuery, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rows = rowsStatement.executeQuery();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        rows.close();
+        rowsStatement.close();
+        rowsConnection.close();
+        DBConnection.closeConnection();
+    }
+
+    private int nextCandidate() {
+        return next++ & (candidates - 1);
+    }
+
+    @Benchmark
+    public ManageState.ValidationError validateAppointment() {
+        int i = nextCandidate();
+        return ManageState.checkAppointment(starts[i], ends[i], userZone, customerIDs[i], -1);
+    }
+
+    @Benchmark
+    public boolean overlapIndex() throws SQLException {
+        int i = nextCandidate();
+        return AppointmentIndex.hasOverlap(customerIDs[i], utcTimes[i], ends[i].toLocalDateTime(), -1);
+    }
+
+    @Benchmark
+    public boolean overlapDatabase() throws SQLException {
+        int i = nextCandidate();
+        return AppointmentDAO.hasOverlappingAppointment(customerIDs[i], utcTimes[i], ends[i].toLocalDateTime(), -1);
+    }
+
+    /**
+     * The overlap check as it was done before {@link AppointmentIndex}: a scan of every appointment of the customer.
+     */
+    @Benchmark
+    public boolean overlapLinearScan() {
+        int i = nextCandidate();
+        LocalDateTime startUTC = utcTimes[i];
+        LocalDateTime endUTC = ends[i].toLocalDateTime();
+        for (Appointment existing : byCustomer.get(customerIDs[i])) {
+            if (startUTC.isBefore(existing.getEndDate()) && endUTC.isAfter(existing.getStartDate())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public Appointment mapAppointment() throws SQLException {
+        if (!rows.next()) {
+            rows.beforeFirst();
+            rows.next();
+        }
+        return AppointmentDAO.mapAppointment(rows);
+    }
+
+    /**
+     * The cell factories' conversion as it was written before {@link ManageState#formatUserTime}.
+     */
+    @Benchmark
+    public String cellTimeFormattedInline() {
+        LocalDateTime item = utcTimes[nextCandidate()];
+        ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
+        return DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT).format(zdt);
+    }
+
+    @Benchmark
+    public String cellTimeFormatUserTime() {
+        return ManageState.formatUserTime(utcTimes[nextCandidate()]);
+    }
+
+    @Benchmark
+    public LocalDateTime cellTimeToUserTime() {
+        return ManageState.toUserTime(utcTimes[nextCandidate()]);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utilities.PasswordHasher;
+import utilities.PasswordHasher.Verification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long verifying a password takes at different PBKDF2 costs, alone and with several logins
+ * at once going through {@link PasswordHasher}'s verifier pool. Use it to pick {@code password.iterations}:
+ * a single login should stay well under the time a user notices.
+ * <p>
+ * Compare other costs with JMH's parameter option, e.g.
+ * {@code java -jar benchmarks/target/benchmarks.jar PasswordHashBenchmark -p iterations=60000,480000}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+    private static final String password = "correct horse battery staple";
+
+    @Param({"30000", "60000", "120000", "240000"})
+    public int iterations;
+
+    @Param("8")
+    public int concurrentLogins;
+
+    private String stored;
+
+    @Setup
+    public void hash() {
+        stored = PasswordHasher.hash(password, iterations);
+        if (!PasswordHasher.verify(password, stored).matches()) {
+            throw new IllegalStateException("Password did not verify at " + iterations + " iterations");
+        }
+    }
+
+    /**
+     * The latency of one login.
+     */
+    @Benchmark
+    public Verification verify() {
+        return PasswordHasher.verify(password, stored);
+    }
+
+    /**
+     * The wall time until the last of a burst of logins is verified.
+     */
+    @Benchmark
+    public List<CompletableFuture<Verification>> verifyConcurrently() {
+        List<CompletableFuture<Verification>> burst = new ArrayList<>(concurrentLogins);
+        for (int i = 0; i < concurrentLogins; i++) {
+            burst.add(PasswordHasher.verifyAsync(password, stored));
+        }
+        CompletableFuture.allOf(burst.toArray(new CompletableFuture<?>[0])).join();
+        return burst;
+    }
+}
@@ -4,12 +4,20 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Appointment;
 import model.Contact;
+import model.Session;
+import utilities.AppointmentIndex;
+import utilities.AvailabilityIndex;
+import utilities.Log;
 
 import java.sql.Timestamp;
 import java.time.*;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import static utilities.DBConnection.getConnection;
 
@@ -25,6 +33,9 @@ import static utilities.DBConnection.getConnection;
  * Each method ensures data integrity and handles SQL exceptions to maintain robustness of the application's data access layer.
  */
 public class AppointmentDAO {
+    private static final Log log = Log.get(AppointmentDAO.class);
+
+    public static final int pageSize = Integer.getInteger("appointments.pageSize", 200); // Rows per page for paged reads
 
     /**
      * Retrieves all appointments from the database, joining with customer and contact tables to enrich the appointment data.
@@ -35,37 +46,79 @@ public class AppointmentDAO {
     public static ObservableList<Appointment> getAllAppointments() {
         ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
-                           "FROM appointments a " +
-                           "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
-                           "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
-                           "ORDER BY a.Create_Date ASC";
+        String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
+                       "FROM appointments a " +
+                       "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
+                       "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
+                       "ORDER BY a.Create_Date ASC";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
-                int appointmentID = rs.getInt("Appointment_ID");
-                String title = rs.getString("Title");
-                String description = rs.getString("Description");
-                String location = rs.getString("Location");
-                String type = rs.getString("Type");
-                LocalDateTime startDate = rs.getTimestamp("Start") != null ? rs.getTimestamp("Start").toLocalDateTime() : null;
-                System.out.println("From getAllAppointments() = " + startDate);
-                System.out.println("Timestamp = " + rs.getTimestamp("Start"));
-                System.out.println("From getAllAppointments() = " + title);
-                LocalDateTime endDate = rs.getTimestamp("End") != null ? rs.getTimestamp("End").toLocalDateTime() : null;
-                int customerID = rs.getInt("Customer_ID");
-                int userID = rs.getInt("User_ID");
-                int contactID = rs.getInt("Contact_ID");
-
-                Appointment appointment = new Appointment(appointmentID, title, description, location, type, startDate, endDate, customerID, userID, contactID);
+                Appointment appointment = mapAppointment(rs);
+                log.trace(() -> "getAllAppointments: " + appointment.getAppointmentID() + " '" + appointment.getTitle() + "' starts " + appointment.getStartDate());
                 appointmentList.add(appointment);
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllAppointments failed", e);
+        }
+        return appointmentList;
+    }
+
+    /**
+     * Maps the current row of a result set to an appointment. The row must have the columns selected by
+     * the appointment queries in this class: Appointment_ID, Title, Description, Location, Type, Start, End,
+     * Customer_ID, User_ID and Contact_ID.
+     * @param rs The result set, positioned on a row.
+     * @return The appointment, with start and end times in UTC.
+     * @throws SQLException if a column cannot be read.
+     */
+    public static Appointment mapAppointment(ResultSet rs) throws SQLException {
+        Timestamp start = rs.getTimestamp("Start");
+        Timestamp end = rs.getTimestamp("End");
+        return new Appointment(rs.getInt("Appointment_ID"), rs.getString("Title"), rs.getString("Description"),
+                rs.getString("Location"), rs.getString("Type"),
+                start != null ? start.toLocalDateTime() : null, end != null ? end.toLocalDateTime() : null,
+                rs.getInt("Customer_ID"), rs.getInt("User_ID"), rs.getInt("Contact_ID"));
+    }
+
+    /**
+     * Retrieves one page of appointments, for tables that load rows as the user scrolls.
+     * Uses keyset pagination on Appointment_ID (the primary key, which follows creation order): each page
+     * continues after the last ID of the previous one, so fetching a page costs the same however deep it is.
+     * @param afterAppointmentID The last appointment ID of the previous page, or 0 for the first page.
+     * @param limit The maximum number of appointments to return.
+     * @return an ObservableList with at most {@code limit} appointments, ordered by ID.
+     */
+    public static ObservableList<Appointment> getAppointmentsPage(int afterAppointmentID, int limit) {
+        ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
+
+        String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
+                       "FROM appointments a " +
+                       "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
+                       "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
+                       "WHERE a.Appointment_ID > ? " +
+                       "ORDER BY a.Appointment_ID ASC " +
+                       "LIMIT ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, afterAppointmentID);
+            ps.setInt(2, limit);
+            ps.setFetchSize(limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Appointment appointment = mapAppointment(rs);
+                    appointmentList.add(appointment);
+                }
+            }
+
+        } catch (SQLException e) {
+            log.error("getAppointmentsPage failed", e);
         }
         return appointmentList;
     }
@@ -80,41 +133,188 @@ public class AppointmentDAO {
     public static ObservableList<Appointment> getAllAppointmentsForCustomer(int Customer_ID) {
         ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
-                    "FROM appointments a " +
-                    "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
-                    "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
-                    "WHERE a.Customer_ID = ? " +
-                    "ORDER BY a.Create_Date ASC";
+        String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
+                "FROM appointments a " +
+                "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
+                "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
+                "WHERE a.Customer_ID = ? " +
+                "ORDER BY a.Create_Date ASC";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, Customer_ID);
 
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
-                int appointmentID = rs.getInt("Appointment_ID");
-                String title = rs.getString("Title");
-                String description = rs.getString("Description");
-                String location = rs.getString("Location");
-                String type = rs.getString("Type");
-                LocalDateTime startDate = rs.getTimestamp("Start") != null ? rs.getTimestamp("Start").toLocalDateTime() : null;
-                LocalDateTime endDate = rs.getTimestamp("End") != null ? rs.getTimestamp("End").toLocalDateTime() : null;
-                int customerID = rs.getInt("Customer_ID");
-                int userID = rs.getInt("User_ID");
-                int contactID = rs.getInt("Contact_ID");
-
-                Appointment appointment = new Appointment(appointmentID, title, description, location, type, startDate, endDate, customerID, userID, contactID);
+                Appointment appointment = mapAppointment(rs);
                 appointmentList.add(appointment);
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllAppointmentsForCustomer failed", e);
         }
         return appointmentList;
     }
 
+    /**
+     * Gets the times of every appointment of a customer, for the {@link AppointmentIndex}. The query is served
+     * by the (Customer_ID, Start, End) index and only reads the columns the overlap checks need.
+     * Unlike {@link #getAllAppointmentsForCustomer(int)}, a failed query is reported to the caller instead of
+     * returning an empty list, so the index never mistakes a failure for a customer without appointments.
+     * @param Customer_ID The ID of the customer.
+     * @return The customer's appointments ordered by start time; only the ID, start, end, customer and contact are set.
+     * @throws SQLException if there is a problem executing the query.
+     */
+    public static List<Appointment> getCustomerIntervals(int Customer_ID) throws SQLException {
+        String query = "SELECT Appointment_ID, Start, End, Customer_ID, Contact_ID FROM appointments " +
+                       "WHERE Customer_ID = ? ORDER BY Start";
+
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, Customer_ID);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp start = rs.getTimestamp("Start");
+                    Timestamp end = rs.getTimestamp("End");
+                    appointments.add(new Appointment(rs.getInt("Appointment_ID"), null, null, null, null,
+                            start != null ? start.toLocalDateTime() : null, end != null ? end.toLocalDateTime() : null,
+                            rs.getInt("Customer_ID"), 0, rs.getInt("Contact_ID")));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * Checks in the database whether a customer has an appointment overlapping the given interval.
+     * The check is a single EXISTS query served by the (Customer_ID, Start, End) index, so no appointment
+     * rows are transferred.
+     * @param Customer_ID The ID of the customer to check.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @param Appointment_ID The appointment to ignore, typically the one being edited, or -1 for a new appointment.
+     * @return true if an overlapping appointment exists, false otherwise.
+     * @throws SQLException if there is a problem executing the query.
+     */
+    public static boolean hasOverlappingAppointment(int Customer_ID, LocalDateTime startUTC, LocalDateTime endUTC, int Appointment_ID) throws SQLException {
+        String query = "SELECT EXISTS (" +
+                       "SELECT 1 FROM appointments " +
+                       "WHERE Customer_ID = ? AND Start < ? AND End > ? AND Appointment_ID <> ?" +
+                       ") AS overlapping";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, Customer_ID);
+            ps.setTimestamp(2, Timestamp.valueOf(endUTC));
+            ps.setTimestamp(3, Timestamp.valueOf(startUTC));
+            ps.setInt(4, Appointment_ID);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean("overlapping");
+            }
+        }
+    }
+
+    /**
+     * Gets the times a customer is booked within an interval, for the database overlap check of a series.
+     * The query is served by the (Customer_ID, Start, End) index and only transfers the start and end of each appointment.
+     * @param Customer_ID The ID of the customer.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @return The customer's appointments overlapping the interval, ordered by start time; only the ID,
+     * start, end and customer are set.
+     * @throws SQLException if there is a problem executing the query.
+     */
+    public static List<Appointment> getCustomerBusyIntervals(int Customer_ID, LocalDateTime startUTC, LocalDateTime endUTC) throws SQLException {
+        String query = "SELECT Appointment_ID, Start, End, Customer_ID FROM appointments " +
+                       "WHERE Customer_ID = ? AND Start < ? AND End > ? " +
+                       "ORDER BY Start";
+
+        List<Appointment> busy = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, Customer_ID);
+            ps.setTimestamp(2, Timestamp.valueOf(endUTC));
+            ps.setTimestamp(3, Timestamp.valueOf(startUTC));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    busy.add(new Appointment(rs.getInt("Appointment_ID"), null, null, null,
+                            rs.getTimestamp("Start").toLocalDateTime(), rs.getTimestamp("End").toLocalDateTime(),
+                            rs.getInt("Customer_ID")));
+                }
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Gets the times a contact is booked within an interval, for the free slot search. The query is served by
+     * the (Contact_ID, Start, End) index and only transfers the start and end of each appointment.
+     * @param Contact_ID The ID of the contact.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @param Appointment_ID The appointment to ignore, typically the one being edited, or -1.
+     * @return The contact's appointments overlapping the interval, ordered by start time; only the ID,
+     * start, end and customer are set.
+     * @throws SQLException if there is a problem executing the query.
+     */
+    public static List<Appointment> getContactBusyIntervals(int Contact_ID, LocalDateTime startUTC, LocalDateTime endUTC, int Appointment_ID) throws SQLException {
+        String query = "SELECT Appointment_ID, Start, End, Customer_ID FROM appointments " +
+                       "WHERE Contact_ID = ? AND Start < ? AND End > ? AND Appointment_ID <> ? " +
+                       "ORDER BY Start";
+
+        List<Appointment> busy = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, Contact_ID);
+            ps.setTimestamp(2, Timestamp.valueOf(endUTC));
+            ps.setTimestamp(3, Timestamp.valueOf(startUTC));
+            ps.setInt(4, Appointment_ID);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    busy.add(new Appointment(rs.getInt("Appointment_ID"), null, null, null,
+                            rs.getTimestamp("Start").toLocalDateTime(), rs.getTimestamp("End").toLocalDateTime(),
+                            rs.getInt("Customer_ID")));
+                }
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Gets the times of every appointment overlapping an interval, for the {@link AvailabilityIndex}.
+     * Only the columns the availability masks need are read.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @return The appointments overlapping the interval; only the ID, start, end, customer and contact are set.
+     * @throws SQLException if there is a problem executing the query.
+     */
+    public static List<Appointment> getAppointmentIntervals(LocalDateTime startUTC, LocalDateTime endUTC) throws SQLException {
+        String query = "SELECT Appointment_ID, Start, End, Customer_ID, Contact_ID FROM appointments " +
+                       "WHERE Start < ? AND End > ?";
+
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setTimestamp(1, Timestamp.valueOf(endUTC));
+            ps.setTimestamp(2, Timestamp.valueOf(startUTC));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(new Appointment(rs.getInt("Appointment_ID"), null, null, null, null,
+                            rs.getTimestamp("Start").toLocalDateTime(), rs.getTimestamp("End").toLocalDateTime(),
+                            rs.getInt("Customer_ID"), 0, rs.getInt("Contact_ID")));
+                }
+            }
+        }
+        return appointments;
+    }
+
     /**
      * Inserts a new appointment into the database with detailed information including title, description, location, type, and timing.
      * @param Title The title of the appointment.
@@ -126,18 +326,19 @@ public class AppointmentDAO {
      * @param Customer_ID The customer ID related to the appointment.
      * @param User_ID The user ID related to the appointment.
      * @param Contact_ID The contact ID related to the appointment.
+     * @param session The session of the user creating the appointment, recorded as its creator.
+     * @return The ID generated for the new appointment, or -1 if it could not be created.
      * @throws SQLException if there is an error during the query execution.
      */
-    public static void createAppointment(String Title, String Description, String Location, String Type,
-                                         ZonedDateTime Start, ZonedDateTime End, int Customer_ID, int User_ID, int Contact_ID) {
+    public static int createAppointment(String Title, String Description, String Location, String Type,
+                                         ZonedDateTime Start, ZonedDateTime End, int Customer_ID, int User_ID, int Contact_ID, Session session) {
 
-        PreparedStatement ps = null;
+        String query = "INSERT INTO appointments (Title, Description, Location, Type, Start, End, Customer_ID, User_ID, Contact_ID, Create_Date, Created_By, Last_Update, Last_Updated_By) " +
+                       "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), ?, NOW(), ?)";
 
-        try{
-            String query = "INSERT INTO appointments (Title, Description, Location, Type, Start, End, Customer_ID, User_ID, Contact_ID, Create_Date, Created_By, Last_Update, Last_Updated_By) " +
-                           "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), 'default_user', NOW(), 'default_user')";
-
-            ps = getConnection().prepareStatement(query);
+        int appointmentID = -1;
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, Title);
             ps.setString(2, Description);
@@ -145,22 +346,123 @@ public class AppointmentDAO {
             ps.setString(4, Type);
             ps.setTimestamp(5, Timestamp.valueOf(Start.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime()));
             ps.setTimestamp(6, Timestamp.valueOf(End.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime()));
-            System.out.println("From createAppointment() = " + Timestamp.valueOf(Start.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime()));
+            log.debug(() -> "createAppointment: start (UTC) = " + Start.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime());
             ps.setInt(7, Customer_ID);
             ps.setInt(8, User_ID);
             ps.setInt(9, Contact_ID);
+            ps.setString(10, session.getUserName());
+            ps.setString(11, session.getUserName());
 
-            int result = ps.executeUpdate();
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (keys.next()) {
+                    appointmentID = keys.getInt(1);
+                }
+            }
 
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (ps != null) ps.close(); // Close PreparedStatement
-            } catch (SQLException ex) {
-                ex.printStackTrace();
+            log.error("createAppointment failed", e);
+        }
+
+        if (appointmentID != -1) {
+            Appointment created = new Appointment(appointmentID, Title, Description, Location, Type,
+                    Start.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(), End.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+                    Customer_ID, User_ID, Contact_ID);
+            AppointmentIndex.put(created);
+            AvailabilityIndex.put(created);
+        }
+        return appointmentID;
+    }
+
+    /**
+     * Inserts several appointments with one JDBC batch in a single transaction: either every appointment is
+     * saved or, if any row fails, none is. The saved appointments are added to the {@link AppointmentIndex}.
+     * @param appointments The appointments to insert, with UTC start and end times; their IDs are ignored.
+     * @param session The session of the user creating the appointments, recorded as their creator.
+     * @return The saved appointments with their generated IDs, in the order given.
+     * @throws SQLException if the batch fails; nothing has been inserted in that case.
+     */
+    public static List<Appointment> insertAppointments(List<Appointment> appointments, Session session) throws SQLException {
+        List<Appointment> saved = new ArrayList<>(appointments.size());
+        if (appointments.isEmpty()) {
+            return saved;
+        }
+        String query = "INSERT INTO appointments (Title, Description, Location, Type, Start, End, Customer_ID, User_ID, Contact_ID, Create_Date, Created_By, Last_Update, Last_Updated_By) " +
+                       "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), ?, NOW(), ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+                for (Appointment appointment : appointments) {
+                    ps.setString(1, appointment.getTitle());
+                    ps.setString(2, appointment.getDescription());
+                    ps.setString(3, appointment.getLocation());
+                    ps.setString(4, appointment.getType());
+                    ps.setTimestamp(5, Timestamp.valueOf(appointment.getStartDate()));
+                    ps.setTimestamp(6, Timestamp.valueOf(appointment.getEndDate()));
+                    ps.setInt(7, appointment.getCustomerID());
+                    ps.setInt(8, appointment.getUserID());
+                    ps.setInt(9, appointment.getContactID());
+                    ps.setString(10, session.getUserName());
+                    ps.setString(11, session.getUserName());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Appointment appointment : appointments) {
+                        if (!keys.next()) {
+                            throw new SQLException("Missing generated key for appointment " + (saved.size() + 1) + " of " + appointments.size());
+                        }
+                        saved.add(new Appointment(keys.getInt(1), appointment.getTitle(), appointment.getDescription(),
+                                appointment.getLocation(), appointment.getType(), appointment.getStartDate(), appointment.getEndDate(),
+                                appointment.getCustomerID(), appointment.getUserID(), appointment.getContactID()));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                log.error("insertAppointments failed; rolled back " + appointments.size() + " appointments", e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
+
+        for (Appointment appointment : saved) {
+            AppointmentIndex.put(appointment);
+            AvailabilityIndex.put(appointment);
+        }
+        log.debug(() -> "Inserted " + saved.size() + " appointments");
+        return saved;
+    }
+
+    /**
+     * Inserts every occurrence of a recurring appointment as one batched transaction.
+     * @param Title The title of the appointments.
+     * @param Description The description of the appointments.
+     * @param Location The location of the appointments.
+     * @param Type The type of the appointments.
+     * @param starts The start of every occurrence, as expanded by {@link model.Recurrence#expand}.
+     * @param duration The length of each occurrence.
+     * @param Customer_ID The customer ID related to the appointments.
+     * @param User_ID The user ID related to the appointments.
+     * @param Contact_ID The contact ID related to the appointments.
+     * @param session The session of the user creating the appointments, recorded as their creator.
+     * @return The saved appointments with their generated IDs, in order.
+     * @throws SQLException if the insert fails; no occurrence has been saved in that case.
+     */
+    public static List<Appointment> createAppointmentSeries(String Title, String Description, String Location, String Type,
+                                                            List<ZonedDateTime> starts, Duration duration, int Customer_ID, int User_ID, int Contact_ID,
+                                                            Session session) throws SQLException {
+        List<Appointment> occurrences = new ArrayList<>(starts.size());
+        for (ZonedDateTime start : starts) {
+            occurrences.add(new Appointment(0, Title, Description, Location, Type,
+                    start.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+                    start.plus(duration).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+                    Customer_ID, User_ID, Contact_ID));
+        }
+        return insertAppointments(occurrences, session);
     }
 
     /**
@@ -175,16 +477,17 @@ public class AppointmentDAO {
      * @param User_ID The user ID related to the appointment.
      * @param Contact_ID The contact ID related to the appointment.
      * @param Appointment_ID The ID of the appointment to update.
+     * @param session The session of the user updating the appointment, recorded as its last updater.
      * @throws SQLException if there is an error during the update process.
      */
     public static void editAppointment(String Title, String Description, String Location, String Type,
-                                       ZonedDateTime Start, ZonedDateTime End, int Customer_ID, int User_ID, int Contact_ID, int Appointment_ID) {
+                                       ZonedDateTime Start, ZonedDateTime End, int Customer_ID, int User_ID, int Contact_ID, int Appointment_ID, Session session) {
 
-        try{
-            String query = "UPDATE appointments set Title = ?, Description = ?, Location = ?, Type = ?, Start = ?, End = ?, Customer_ID = ?, User_ID = ?, Contact_ID = ?, Last_Update = NOW() " +
-                           "WHERE Appointment_ID = ?";
+        String query = "UPDATE appointments set Title = ?, Description = ?, Location = ?, Type = ?, Start = ?, End = ?, Customer_ID = ?, User_ID = ?, Contact_ID = ?, Last_Update = NOW(), Last_Updated_By = ? " +
+                       "WHERE Appointment_ID = ?";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, Title);
             ps.setString(2, Description);
             ps.setString(3, Location);
@@ -194,12 +497,17 @@ public class AppointmentDAO {
             ps.setInt(7, Customer_ID);
             ps.setInt(8, User_ID);
             ps.setInt(9, Contact_ID);
-            ps.setInt(10, Appointment_ID);
+            ps.setString(10, session.getUserName());
+            ps.setInt(11, Appointment_ID);
 
             ps.execute();
+            Appointment edited = new Appointment(Appointment_ID, Title, Description, Location, Type,
+                    Start.toLocalDateTime(), End.toLocalDateTime(), Customer_ID, User_ID, Contact_ID);
+            AppointmentIndex.put(edited);
+            AvailabilityIndex.put(edited);
 
         } catch(SQLException e) {
-            e.printStackTrace();
+            log.error("editAppointment failed", e);
         }
     }
 
@@ -210,17 +518,19 @@ public class AppointmentDAO {
      */
     public static void deleteAppointmentFromDB(int Appointment_ID) {
 
-        try{
-            String query = "DELETE from appointments " +
-                    "WHERE Appointment_ID = ?";
+        String query = "DELETE from appointments " +
+                "WHERE Appointment_ID = ?";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, Appointment_ID);
 
             ps.execute();
+            AppointmentIndex.remove(Appointment_ID);
+            AvailabilityIndex.remove(Appointment_ID);
 
         } catch(SQLException e) {
-            e.printStackTrace();
+            log.error("deleteAppointmentFromDB failed", e);
         }
     }
 
@@ -234,15 +544,15 @@ public class AppointmentDAO {
     public static ObservableList<Appointment> fetchAppointments(LocalDate start, LocalDate end) {
         ObservableList<Appointment> appointmentList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
-                    "FROM appointments a " +
-                    "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
-                    "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
-                    "WHERE a.Start >= ? AND a.Start <= ? " +
-                    "ORDER BY a.Create_Date ASC";
+        String query = "SELECT a.Appointment_ID, a.Title, a.Description, a.Location, a.Type, a.Start, a.End, a.Customer_ID, a.User_ID, ct.Contact_ID " +
+                "FROM appointments a " +
+                "JOIN customers c ON a.Customer_ID = c.Customer_ID " +
+                "JOIN contacts ct ON a.Contact_ID = ct.Contact_ID " +
+                "WHERE a.Start >= ? AND a.Start <= ? " +
+                "ORDER BY a.Create_Date ASC";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setDate(1, java.sql.Date.valueOf(start));
             ps.setDate(2, java.sql.Date.valueOf(end));
@@ -250,24 +560,12 @@ public class AppointmentDAO {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
-                int appointmentID = rs.getInt("Appointment_ID");
-                String title = rs.getString("Title");
-                String description = rs.getString("Description");
-                String location = rs.getString("Location");
-                String type = rs.getString("Type");
-                LocalDateTime startDate = rs.getTimestamp("Start") != null ? rs.getTimestamp("Start").toLocalDateTime() : null;
-                LocalDateTime endDate = rs.getTimestamp("End") != null ? rs.getTimestamp("End").toLocalDateTime() : null;
-                int customerID = rs.getInt("Customer_ID");
-                int userID = rs.getInt("User_ID");
-                int contactID = rs.getInt("Contact_ID");
-
-
-                Appointment appointment = new Appointment(appointmentID, title, description, location, type, startDate, endDate, customerID, userID, contactID);
+                Appointment appointment = mapAppointment(rs);
                 appointmentList.add(appointment);
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("fetchAppointments failed", e);
         }
         return appointmentList;
     }
@@ -297,8 +595,8 @@ public class AppointmentDAO {
 
         String query = "SELECT Appointment_ID, Start FROM appointments WHERE Start BETWEEN ? AND ? ORDER BY Start ASC LIMIT 1;";
         Appointment upcomingAppointment = null;
-        try{
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             // Set parameters for UTC times
             ps.setTimestamp(1, Timestamp.valueOf(now));
             ps.setTimestamp(2, Timestamp.valueOf(nowPlus15Minutes));
@@ -313,43 +611,12 @@ public class AppointmentDAO {
                 upcomingAppointment = new Appointment(appointmentId, startUserTime.toLocalDateTime());
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getUpcomingAppointment failed", e);
             throw e;
         }
         return upcomingAppointment;
     }
 
-    /**
-     * Retrieves the user ID associated with a given username from the database.
-     * This method is crucial for operations requiring user identification beyond just username checks, such as logging and user-specific data retrieval.
-     * @param userName The username whose user ID is being queried.
-     * @return The user ID corresponding to the provided username or -1 if the user does not exist or an error occurs.
-     * @throws SQLException If there is an error during the database access.
-     */
-
-    public static int getUserIdFromUserName(String userName) throws SQLException {
-        String query = "SELECT User_ID FROM users WHERE User_Name = ?";
-        int userId = -1;  // Default to -1 to indicate no user found or error
-
-        try{
-            PreparedStatement ps = getConnection().prepareStatement(query);
-
-            ps.setString(1, userName);
-
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    userId = rs.getInt("User_ID");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error fetching user ID from database for username: " + userName);
-            e.printStackTrace();
-            throw e;
-        }
-
-        return userId;
-    }
-
     /**
      * Retrieves all appointments associated with a specific contact from the database.
      * This method is used to filter appointments by contact, which is useful for displaying user-specific appointment data.
@@ -361,12 +628,12 @@ public class AppointmentDAO {
     public static ObservableList<Appointment> getAppointmentsPerContact(Contact contact) {
         ObservableList<Appointment> appointmentsPerContact = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT Appointment_ID, Title, Type, Description, Start, End, Customer_ID " +
-                           "FROM appointments " +
-                           "WHERE Contact_ID = ?";
+        String query = "SELECT Appointment_ID, Title, Type, Description, Start, End, Customer_ID " +
+                       "FROM appointments " +
+                       "WHERE Contact_ID = ?";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, contact.getContactID());
 
             ResultSet rs = ps.executeQuery();
@@ -385,40 +652,43 @@ public class AppointmentDAO {
                 }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAppointmentsPerContact failed", e);
         }
         return appointmentsPerContact;
     }
 
     /**
-     * Counts the number of appointments of a specified type occurring in a specific month.
+     * Counts the number of appointments of each type occurring in a specific month.
      * This method is useful for generating statistics and reports on appointment data.
-     * @param month The month for which to count appointments.
-     * @return The number of appointments matching the specified type and month.
+     * The month is taken in the user's time zone and turned into a half-open UTC range on Start,
+     * so the query can use the (Start, Type) index instead of evaluating MONTH(Start) on every row.
+     * @param yearMonth The year and month for which to count appointments.
+     * @param userTimeZone The user's time zone, which defines where the month starts and ends.
+     * @return The number of appointments per type in the specified month.
      * @throws SQLException If there is an error executing the count query.
      */
-    public static ObservableList<Appointment> countAppointmentsByTypeForMonth(int month) {
+    public static ObservableList<Appointment> countAppointmentsByTypeForMonth(YearMonth yearMonth, ZoneId userTimeZone) {
         ObservableList<Appointment> summaryList = FXCollections.observableArrayList();
         String query = "SELECT type, COUNT(*) AS total " +
                        "FROM appointments " +
-                       "WHERE MONTH(Start) = ? " +
+                       "WHERE Start >= ? AND Start < ? " +
                        "GROUP BY type";
 
-        try{
-            PreparedStatement ps = getConnection().prepareStatement(query);
-            ps.setInt(1, month);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setTimestamp(1, Timestamp.valueOf(startOfDayUTC(yearMonth.atDay(1), userTimeZone)));
+            ps.setTimestamp(2, Timestamp.valueOf(startOfDayUTC(yearMonth.plusMonths(1).atDay(1), userTimeZone)));
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     String type = rs.getString("type");
                     int total = rs.getInt("total");
-                    System.out.println(type);
-                    System.out.println(total);
+                    log.trace(() -> "countAppointmentsByTypeForMonth: " + type + " = " + total);
                     summaryList.add(new Appointment(type, total));
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("countAppointmentsByTypeForMonth failed", e);
         }
         return summaryList;
     }
@@ -432,15 +702,15 @@ public class AppointmentDAO {
         ObservableList<String> types = FXCollections.observableArrayList();
         String query = "SELECT DISTINCT type FROM appointments ORDER BY type";
 
-        try{
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while (rs.next()) {
                 types.add(rs.getString("type"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("fetchAppointmentTypes failed", e);
         }
         return types;
     }
@@ -448,26 +718,42 @@ public class AppointmentDAO {
     /**
      * Counts all appointments scheduled for the next day from the current date.
      * This method can be used to prepare or alert users about upcoming appointments.
+     * "Tomorrow" is taken in the user's time zone and turned into a half-open UTC range on Start,
+     * so the count is answered from the index on Start.
+     * @param userTimeZone The user's time zone, which defines where tomorrow starts and ends.
      * @return The total number of appointments scheduled for the next day.
      * @throws SQLException If there is an error executing the count query.
      */
-    public static int getCountOfAppointmentsForNextDay() {
-        String query = "SELECT COUNT(*) AS total FROM appointments WHERE DATE(Start) = CURDATE() + INTERVAL 1 DAY";
+    public static int getCountOfAppointmentsForNextDay(ZoneId userTimeZone) {
+        String query = "SELECT COUNT(*) AS total FROM appointments WHERE Start >= ? AND Start < ?";
         int count = 0;
+        LocalDate tomorrow = LocalDate.now(userTimeZone).plusDays(1);
 
-        try{
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setTimestamp(1, Timestamp.valueOf(startOfDayUTC(tomorrow, userTimeZone)));
+            ps.setTimestamp(2, Timestamp.valueOf(startOfDayUTC(tomorrow.plusDays(1), userTimeZone)));
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
                 count = rs.getInt("total");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getCountOfAppointmentsForNextDay failed", e);
         }
         return count;
     }
 
+    /**
+     * Converts the start of a day in the user's time zone to the UTC time stored in the database.
+     * @param date The day.
+     * @param userTimeZone The user's time zone.
+     * @return The UTC date and time at which the day starts for the user.
+     */
+    private static LocalDateTime startOfDayUTC(LocalDate date, ZoneId userTimeZone) {
+        return date.atStartOfDay(userTimeZone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
     /**
      * Deletes all appointments associated with a given customer from the database.
      * @param customerID The ID of the customer whose appointments are to be deleted.
@@ -476,18 +762,15 @@ public class AppointmentDAO {
     public static void deleteAllAppointmentsForCustomer(int customerID) throws SQLException {
         String query = "DELETE FROM appointments WHERE Customer_ID = ?;";
 
-        try{
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, customerID);
             int affectedRows = ps.executeUpdate();
-            if (affectedRows > 0) {
-                System.out.println("Deleted " + affectedRows + " appointments for customer ID " + customerID);
-            } else {
-                System.out.println("No appointments found for customer ID " + customerID);
-            }
+            AppointmentIndex.removeCustomer(customerID);
+            AvailabilityIndex.removeCustomer(customerID);
+            log.debug(() -> "Deleted " + affectedRows + " appointments for customer ID " + customerID);
         } catch (SQLException e) {
-            System.err.println("Error deleting appointments for customer ID " + customerID);
-            e.printStackTrace();
+            log.error("Error deleting appointments for customer ID " + customerID, e);
             throw e;
         }
     }
@@ -0,0 +1,169 @@
+package DAO;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import model.Appointment;
+import model.Contact;
+import model.Customer;
+import model.Session;
+import utilities.Log;
+import utilities.PasswordHasher;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static utilities.ManageState.showAlert;
+
+/**
+ * Runs DAO queries off the JavaFX application thread. Each method starts the matching static DAO call
+ * on a background executor and returns a {@link CompletableFuture} for its result, so a controller can
+ * start all of its queries at once and let them run in parallel on separate pooled connections.
+ * {@link #runOnFxThread(Runnable, CompletableFuture[])} then applies the results to the UI in one batch.
+ */
+public class AsyncDAO {
+    private static final Log log = Log.get(AsyncDAO.class);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    // One worker per pooled connection; more threads would only wait for a connection.
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Integer.getInteger("db.pool.maxSize", 10), r -> {
+                Thread t = new Thread(r, "dao-worker-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Runs a DAO call on the background executor.
+     * @param query The DAO call to run.
+     * @param <T> The type of the result.
+     * @return A future completed with the result of the call.
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    /**
+     * Waits for all the given futures and then runs {@code apply} once on the JavaFX application thread.
+     * If any query failed, an alert is shown instead and {@code apply} is not run.
+     * @param apply The UI update using the results of the futures.
+     * @param futures The queries the UI update depends on.
+     */
+    public static void runOnFxThread(Runnable apply, CompletableFuture<?>... futures) {
+        CompletableFuture.allOf(futures).whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                log.error("Background query failed", error);
+                showAlert("Database Error", "The data could not be loaded.");
+                return;
+            }
+            apply.run();
+        }));
+    }
+
+    public static CompletableFuture<ObservableList<Appointment>> getAllAppointments() {
+        return supplyAsync(AppointmentDAO::getAllAppointments);
+    }
+
+    public static CompletableFuture<ObservableList<Appointment>> fetchAppointments(LocalDate start, LocalDate end) {
+        return supplyAsync(() -> AppointmentDAO.fetchAppointments(start, end));
+    }
+
+    public static CompletableFuture<ObservableList<Appointment>> getAppointmentsPerContact(Contact contact) {
+        return supplyAsync(() -> AppointmentDAO.getAppointmentsPerContact(contact));
+    }
+
+    public static CompletableFuture<ObservableList<Appointment>> countAppointmentsByTypeForMonth(YearMonth yearMonth, ZoneId userTimeZone) {
+        return supplyAsync(() -> AppointmentDAO.countAppointmentsByTypeForMonth(yearMonth, userTimeZone));
+    }
+
+    public static CompletableFuture<Integer> getCountOfAppointmentsForNextDay(ZoneId userTimeZone) {
+        return supplyAsync(() -> AppointmentDAO.getCountOfAppointmentsForNextDay(userTimeZone));
+    }
+
+    /**
+     * Fetches the upcoming appointment for the user in the background.
+     * @param userTimeZone The time zone to adjust the appointment time to.
+     * @return A future completed with the upcoming appointment, or null if there is none.
+     */
+    public static CompletableFuture<Appointment> getUpcomingAppointmentForUser(ZoneId userTimeZone) {
+        return supplyAsync(() -> {
+            try {
+                return AppointmentDAO.getUpcomingAppointmentForUser(userTimeZone);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Authenticates a user in the background: the stored credentials are read on the DAO executor and
+     * the password is verified on {@link PasswordHasher}'s pool, so neither the JavaFX application thread
+     * nor a pooled connection waits for the hash.
+     * @param userName The username provided by the user.
+     * @param password The password provided by the user.
+     * @return A future completed with the session of the user, or null if the credentials do not match.
+     */
+    public static CompletableFuture<Session> authenticate(String userName, String password) {
+        if (userName == null || userName.trim().isEmpty() || password == null || password.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return supplyAsync(() -> {
+            try {
+                return UserDAO.findCredentials(userName);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }).thenCompose(credentials -> PasswordHasher.verifyAsync(password, credentials != null ? credentials.password : null)
+                .thenCompose(verification -> supplyAsync(() -> UserDAO.completeLogin(credentials, password, verification))));
+    }
+
+    public static CompletableFuture<ObservableList<Customer>> getAllCustomers() {
+        return supplyAsync(CustomerDAO::getAllCustomers);
+    }
+
+    /**
+     * Deletes a set of customers and their appointments in one transaction in the background.
+     * @param customerIDs The IDs of the customers to delete.
+     * @return A future completed with the number of rows removed.
+     */
+    public static CompletableFuture<CustomerDAO.DeleteResult> deleteCustomers(Collection<Integer> customerIDs) {
+        List<Integer> ids = new ArrayList<>(customerIDs);
+        return supplyAsync(() -> {
+            try {
+                return CustomerDAO.deleteCustomers(ids);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    public static CompletableFuture<ObservableList<Integer>> getAllCustomerIDs() {
+        return supplyAsync(CustomerDAO::getAllCustomerIDs);
+    }
+
+    /**
+     * Gets the contacts from {@link ReferenceData}; no query runs while the cached list is fresh.
+     * @return A future completed with the contacts.
+     */
+    public static CompletableFuture<ObservableList<Contact>> getAllContacts() {
+        return ReferenceData.getContactsAsync();
+    }
+
+    public static CompletableFuture<ObservableList<Integer>> getAllContactIDs() {
+        return ReferenceData.getContactIDsAsync();
+    }
+
+    public static CompletableFuture<ObservableList<Integer>> getAllUserIDs() {
+        return ReferenceData.getUserIDsAsync();
+    }
+}
@@ -3,7 +3,9 @@ package DAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Contact;
+import utilities.Log;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -17,6 +19,7 @@ import static utilities.DBConnection.getConnection;
  * and finally clauses.
  */
 public class ContactDAO {
+    private static final Log log = Log.get(ContactDAO.class);
 
     /**
      * Retrieves all contacts from the database and returns them as an ObservableList.
@@ -28,9 +31,10 @@ public class ContactDAO {
     public static ObservableList<Contact> getAllContacts() {
         ObservableList<Contact> contactList = FXCollections.observableArrayList();
 
-        try {
-            String query = "SELECT Contact_ID, Contact_Name FROM contacts";
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        String query = "SELECT Contact_ID, Contact_Name FROM contacts";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while (rs.next()) {
@@ -42,7 +46,7 @@ public class ContactDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllContacts failed", e);
         }
         return contactList;
     }
@@ -57,10 +61,10 @@ public class ContactDAO {
     public static ObservableList<Integer> getAllContactIDs() {
         ObservableList<Integer> contactIDList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT Contact_ID FROM contacts";
+        String query = "SELECT Contact_ID FROM contacts";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
@@ -69,7 +73,7 @@ public class ContactDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllContactIDs failed", e);
         }
         return contactIDList;
     }
@@ -3,7 +3,9 @@ package DAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Country;
+import utilities.Log;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -17,6 +19,7 @@ import static utilities.DBConnection.getConnection;
  * for database interactions, with SQL queries executed to fetch necessary data.
  */
 public class CountryDAO {
+    private static final Log log = Log.get(CountryDAO.class);
 
     /**
      * Retrieves all countries from the database and returns them as an ObservableList.
@@ -29,9 +32,10 @@ public class CountryDAO {
     public static ObservableList<Country> getAllCountries() {
         ObservableList<Country> countryList = FXCollections.observableArrayList();
 
-        try {
-            String query = "SELECT Country_ID, Country FROM countries";
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        String query = "SELECT Country_ID, Country FROM countries";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while (rs.next()) {
@@ -43,7 +47,7 @@ public class CountryDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllCountries failed", e);
         }
         return countryList;
     }
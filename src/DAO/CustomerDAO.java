@@ -3,10 +3,20 @@ package DAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Customer;
+import model.Session;
+import utilities.AppointmentIndex;
+import utilities.AvailabilityIndex;
+import utilities.Log;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import static utilities.DBConnection.getConnection;
 
@@ -17,6 +27,8 @@ import static utilities.DBConnection.getConnection;
  * queries and providing a straightforward API for managing customer data.
  */
 public class CustomerDAO {
+    private static final Log log = Log.get(CustomerDAO.class);
+    private static final int deleteChunkSize = Integer.getInteger("customers.deleteChunkSize", 500);
 
     /**
      * Inserts a new customer into the database. The method constructs an SQL statement to insert
@@ -26,32 +38,27 @@ public class CustomerDAO {
      * @param Postal_Code The postal code of the customer's address.
      * @param Phone The phone number of the customer.
      * @param Division_ID The database ID of the division the customer belongs to.
+     * @param session The session of the user creating the customer, recorded as its creator.
      */
-    public static void createCustomer(String Customer_Name, String Address, String Postal_Code, String Phone, int Division_ID) {
-        PreparedStatement ps = null;
+    public static void createCustomer(String Customer_Name, String Address, String Postal_Code, String Phone, int Division_ID, Session session) {
+        String query = "INSERT INTO customers (Customer_Name, Address, Postal_Code, Phone, Division_ID, Created_By, Last_Updated_By, Create_Date, Last_Update) " +
+                       "VALUES (?, ?, ?, ?, ?, ?, ?, NOW(), NOW())";
 
-        try{
-            String query = "INSERT INTO customers (Customer_Name, Address, Postal_Code, Phone, Division_ID, Created_By, Last_Updated_By, Create_Date, Last_Update) " +
-                           "VALUES (?, ?, ?, ?, ?, 'default_user', 'default_user', NOW(), NOW())";
-
-            ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, Customer_Name);
             ps.setString(2, Address);
             ps.setString(3, Postal_Code);
             ps.setString(4, Phone);
             ps.setInt(5, Division_ID);
+            ps.setString(6, session.getUserName());
+            ps.setString(7, session.getUserName());
 
             int result = ps.executeUpdate();
 
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (ps != null) ps.close(); // Close PreparedStatement
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            log.error("createCustomer failed", e);
         }
     }
 
@@ -65,25 +72,27 @@ public class CustomerDAO {
      * @param Phone The new phone number of the customer.
      * @param Division_ID The new division ID of the customer.
      * @param Customer_ID The ID of the customer to update.
+     * @param session The session of the user updating the customer, recorded as its last updater.
      */
-    public static void editCustomer(String Customer_Name, String Address, String Postal_Code, String Phone, int Division_ID, int Customer_ID) {
+    public static void editCustomer(String Customer_Name, String Address, String Postal_Code, String Phone, int Division_ID, int Customer_ID, Session session) {
 
-        try{
-            String query = "UPDATE customers set Customer_Name = ?, Address = ?, Postal_Code = ?, Phone = ?, Division_ID = ?, Last_Update = NOW() " +
-                           "WHERE Customer_ID = ?";
+        String query = "UPDATE customers set Customer_Name = ?, Address = ?, Postal_Code = ?, Phone = ?, Division_ID = ?, Last_Update = NOW(), Last_Updated_By = ? " +
+                       "WHERE Customer_ID = ?";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setString(1, Customer_Name);
             ps.setString(2, Address);
             ps.setString(3, Postal_Code);
             ps.setString(4, Phone);
             ps.setInt(5, Division_ID);
-            ps.setInt(6, Customer_ID);
+            ps.setString(6, session.getUserName());
+            ps.setInt(7, Customer_ID);
 
             ps.execute();
 
         } catch(SQLException e) {
-            e.printStackTrace();
+            log.error("editCustomer failed", e);
         }
     }
 
@@ -93,17 +102,95 @@ public class CustomerDAO {
      */
     public static void deleteCustomerFromDB(int Customer_ID) {
 
-        try{
-            String query = "DELETE from customers " +
-                           "WHERE Customer_ID = ?";
+        String query = "DELETE from customers " +
+                       "WHERE Customer_ID = ?";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setInt(1, Customer_ID);
 
             ps.execute();
 
         } catch(SQLException e) {
-            e.printStackTrace();
+            log.error("deleteCustomerFromDB failed", e);
+        }
+    }
+
+    /**
+     * The number of rows removed by {@link #deleteCustomers(Collection)}.
+     */
+    public static final class DeleteResult {
+        private final int customersDeleted;
+        private final int appointmentsDeleted;
+
+        private DeleteResult(int customersDeleted, int appointmentsDeleted) {
+            this.customersDeleted = customersDeleted;
+            this.appointmentsDeleted = appointmentsDeleted;
+        }
+
+        public int getCustomersDeleted() {
+            return customersDeleted;
+        }
+
+        public int getAppointmentsDeleted() {
+            return appointmentsDeleted;
+        }
+    }
+
+    /**
+     * Deletes a set of customers together with all of their appointments in a single transaction: either
+     * every customer and appointment is removed or, if any statement fails, none is.
+     * The IDs are deleted with set-based {@code IN} statements of up to {@code customers.deleteChunkSize}
+     * IDs (500 by default), so deleting thousands of customers takes a handful of round trips.
+     * @param customerIDs The IDs of the customers to delete.
+     * @return The number of customers and appointments removed.
+     * @throws SQLException if the deletion fails; nothing has been deleted in that case.
+     */
+    public static DeleteResult deleteCustomers(Collection<Integer> customerIDs) throws SQLException {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(customerIDs));
+        if (ids.isEmpty()) {
+            return new DeleteResult(0, 0);
+        }
+
+        int customersDeleted = 0;
+        int appointmentsDeleted = 0;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+                    List<Integer> chunk = ids.subList(from, Math.min(from + deleteChunkSize, ids.size()));
+                    appointmentsDeleted += deleteWhereCustomerIn(conn, "appointments", chunk);
+                    customersDeleted += deleteWhereCustomerIn(conn, "customers", chunk);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                log.error("deleteCustomers failed; rolled back the deletion of " + ids.size() + " customers", e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        for (int customerID : ids) {
+            AppointmentIndex.removeCustomer(customerID);
+            AvailabilityIndex.removeCustomer(customerID);
+        }
+        int customers = customersDeleted;
+        int appointments = appointmentsDeleted;
+        log.debug(() -> "Deleted " + customers + " customers and " + appointments + " appointments");
+        return new DeleteResult(customersDeleted, appointmentsDeleted);
+    }
+
+    private static int deleteWhereCustomerIn(Connection conn, String table, List<Integer> customerIDs) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(customerIDs.size(), "?"));
+        String query = "DELETE FROM " + table + " WHERE Customer_ID IN (" + placeholders + ")";
+
+        try (PreparedStatement ps = conn.prepareStatement(query)) {
+            for (int i = 0; i < customerIDs.size(); i++) {
+                ps.setInt(i + 1, customerIDs.get(i));
+            }
+            return ps.executeUpdate();
         }
     }
 
@@ -117,12 +204,12 @@ public class CustomerDAO {
     public static ObservableList<Customer> getAllCustomers() {
         ObservableList<Customer> customerList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT Customer_ID, Customer_Name, Address, Postal_Code, Phone, Division " +
-                           "FROM customers, first_level_divisions " +
-                           "WHERE customers.Division_ID = first_level_divisions.Division_ID";
+        String query = "SELECT Customer_ID, Customer_Name, Address, Postal_Code, Phone, Division " +
+                       "FROM customers, first_level_divisions " +
+                       "WHERE customers.Division_ID = first_level_divisions.Division_ID";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
@@ -138,7 +225,7 @@ public class CustomerDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllCustomers failed", e);
         }
         return customerList;
     }
@@ -152,10 +239,10 @@ public class CustomerDAO {
     public static ObservableList<Integer> getAllCustomerIDs() {
         ObservableList<Integer> customerIDList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT Customer_ID FROM customers";
+        String query = "SELECT Customer_ID FROM customers";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
@@ -164,7 +251,7 @@ public class CustomerDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllCustomerIDs failed", e);
         }
         return customerIDList;
     }
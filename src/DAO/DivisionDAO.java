@@ -4,7 +4,9 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Country;
 import model.Division;
+import utilities.Log;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -17,6 +19,7 @@ import static utilities.DBConnection.getConnection;
  * of division-related data that is essential for addressing and other geographical classifications.
  */
 public class DivisionDAO {
+    private static final Log log = Log.get(DivisionDAO.class);
 
     /**
      * Retrieves all divisions from the database. This method queries the database
@@ -28,10 +31,10 @@ public class DivisionDAO {
     public static ObservableList<Division> getAllDivisions() {
         ObservableList<Division> divisionList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT Division_ID, Division, Country_ID FROM first_level_divisions";
+        String query = "SELECT Division_ID, Division, Country_ID FROM first_level_divisions";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
@@ -44,7 +47,7 @@ public class DivisionDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllDivisions failed", e);
         }
         return divisionList;
     }
@@ -52,7 +55,9 @@ public class DivisionDAO {
     /**
      * Fetches divisions based on the country specified. This method allows filtering of
      * divisions within a specific country, useful for contextual user interfaces where
-     * divisions need to be displayed according to the selected country.
+     * divisions need to be displayed according to the selected country. Only the rows of that
+     * country are read, through the index on the {@code Country_ID} foreign key.
+     * The forms use the cached {@link ReferenceData#getDivisionsPerCountry(Country)} instead.
      * @param country The country for which divisions are to be fetched.
      * @return An ObservableList containing Division objects that belong to the specified
      * country.
@@ -60,25 +65,24 @@ public class DivisionDAO {
     public static ObservableList<Division> getDivisionsPerCountry(Country country) {
         ObservableList<Division> divisionList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT Division_ID, Division, Country_ID FROM first_level_divisions";
+        String query = "SELECT Division_ID, Division, Country_ID FROM first_level_divisions WHERE Country_ID = ?";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
-            ResultSet rs = ps.executeQuery();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setInt(1, country.getCountryID());
 
-            while(rs.next()) {
-                int divisionID = rs.getInt("Division_ID");
-                String division = rs.getString("Division");
-                int countryID = rs.getInt("Country_ID");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int divisionID = rs.getInt("Division_ID");
+                    String division = rs.getString("Division");
+                    int countryID = rs.getInt("Country_ID");
 
-                Division divisionItem = new Division(divisionID, division, countryID);
-                if(country.getCountryID() == countryID) {
-                    divisionList.add(divisionItem);
+                    divisionList.add(new Division(divisionID, division, countryID));
                 }
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getDivisionsPerCountry failed", e);
         }
         return divisionList;
     }
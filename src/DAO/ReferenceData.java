@@ -0,0 +1,190 @@
+package DAO;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.Contact;
+import model.Country;
+import model.Division;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches the reference data the forms fill their combo boxes with: contacts, countries, divisions and user IDs.
+ * This data almost never changes, so it is loaded once, right after login, and every form then reads it
+ * from memory instead of querying the database each time it is opened.
+ * <p>
+ * Each list is reloaded on its next read once it is older than {@code referenceData.ttlMillis}
+ * (ten minutes by default), or right away after {@link #invalidate()}. Every getter returns a fresh
+ * ObservableList, so a form can change its items without affecting the other forms.
+ */
+public class ReferenceData {
+    private static final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("referenceData.ttlMillis", 600_000L));
+
+    private static final Entry<Contact> contacts = new Entry<>(ContactDAO::getAllContacts);
+    private static final Entry<Country> countries = new Entry<>(CountryDAO::getAllCountries);
+    private static final Entry<Division> divisions = new Entry<>(DivisionDAO::getAllDivisions);
+    private static final Entry<Integer> userIDs = new Entry<>(UserDAO::getAllUserIDs);
+
+    private static volatile DivisionIndex divisionIndex = new DivisionIndex(List.of());
+
+    /**
+     * One cached list and the query that loads it.
+     * @param <T> The type of the list elements.
+     */
+    private static class Entry<T> {
+        private final Supplier<List<T>> loader;
+        private volatile List<T> values;
+        private volatile long loadedAtNanos;
+
+        private Entry(Supplier<List<T>> loader) {
+            this.loader = loader;
+        }
+
+        private boolean isFresh() {
+            return values != null && System.nanoTime() - loadedAtNanos < ttlNanos;
+        }
+
+        /**
+         * Returns the cached list, loading it first if it is missing or expired. Concurrent readers of an
+         * expired entry wait for a single load instead of each running the query.
+         * An empty result is returned but not cached, since the DAOs also return an empty list when a query fails.
+         */
+        private List<T> get() {
+            if (isFresh()) {
+                return values;
+            }
+            synchronized (this) {
+                if (isFresh()) {
+                    return values;
+                }
+                List<T> loaded = List.copyOf(loader.get());
+                if (!loaded.isEmpty()) {
+                    loadedAtNanos = System.nanoTime();
+                    values = loaded;
+                }
+                return loaded;
+            }
+        }
+
+        private ObservableList<T> copy() {
+            return FXCollections.observableArrayList(get());
+        }
+
+        /**
+         * Returns the list right away if it is cached, otherwise loads it on the DAO executor.
+         */
+        private CompletableFuture<ObservableList<T>> copyAsync() {
+            if (isFresh()) {
+                return CompletableFuture.completedFuture(copy());
+            }
+            return AsyncDAO.supplyAsync(this::copy);
+        }
+
+        private void invalidate() {
+            values = null;
+        }
+    }
+
+    /**
+     * The cached divisions grouped by country ID, built from one snapshot of the divisions list.
+     */
+    private static class DivisionIndex {
+        private final List<Division> source;
+        private final Map<Integer, List<Division>> byCountryID = new HashMap<>();
+
+        private DivisionIndex(List<Division> source) {
+            this.source = source;
+            for (Division division : source) {
+                byCountryID.computeIfAbsent(division.getCountryID(), id -> new ArrayList<>()).add(division);
+            }
+        }
+    }
+
+    /**
+     * Loads every reference list in parallel on the DAO executor. Called once the user has logged in,
+     * so the lists are already cached when the first form opens.
+     * @return A future completed once every list is loaded.
+     */
+    public static CompletableFuture<Void> load() {
+        return CompletableFuture.allOf(
+                AsyncDAO.supplyAsync(contacts::get),
+                AsyncDAO.supplyAsync(countries::get),
+                AsyncDAO.supplyAsync(divisions::get),
+                AsyncDAO.supplyAsync(userIDs::get));
+    }
+
+    /**
+     * Drops every cached list; each one is reloaded the next time it is read.
+     */
+    public static void invalidate() {
+        contacts.invalidate();
+        countries.invalidate();
+        divisions.invalidate();
+        userIDs.invalidate();
+    }
+
+    public static ObservableList<Contact> getContacts() {
+        return contacts.copy();
+    }
+
+    public static CompletableFuture<ObservableList<Contact>> getContactsAsync() {
+        return contacts.copyAsync();
+    }
+
+    /**
+     * Gets the IDs of the cached contacts.
+     * @return The contact IDs, in the same order as {@link #getContacts()}.
+     */
+    public static ObservableList<Integer> getContactIDs() {
+        ObservableList<Integer> contactIDList = FXCollections.observableArrayList();
+        for (Contact contact : contacts.get()) {
+            contactIDList.add(contact.getContactID());
+        }
+        return contactIDList;
+    }
+
+    public static CompletableFuture<ObservableList<Integer>> getContactIDsAsync() {
+        if (contacts.isFresh()) {
+            return CompletableFuture.completedFuture(getContactIDs());
+        }
+        return AsyncDAO.supplyAsync(ReferenceData::getContactIDs);
+    }
+
+    public static ObservableList<Country> getCountries() {
+        return countries.copy();
+    }
+
+    public static ObservableList<Division> getDivisions() {
+        return divisions.copy();
+    }
+
+    /**
+     * Gets the cached divisions of a country. The divisions are grouped by country once per load of the
+     * divisions list, so changing the country in a form is a single map lookup.
+     * @param country The selected country.
+     * @return The divisions of the country, in the order they were loaded.
+     */
+    public static ObservableList<Division> getDivisionsPerCountry(Country country) {
+        List<Division> current = divisions.get();
+        DivisionIndex index = divisionIndex;
+        if (index.source != current) {
+            index = new DivisionIndex(current);
+            divisionIndex = index;
+        }
+        return FXCollections.observableArrayList(index.byCountryID.getOrDefault(country.getCountryID(), List.of()));
+    }
+
+    public static ObservableList<Integer> getUserIDs() {
+        return userIDs.copy();
+    }
+
+    public static CompletableFuture<ObservableList<Integer>> getUserIDsAsync() {
+        return userIDs.copyAsync();
+    }
+}
@@ -2,50 +2,145 @@ package DAO;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import model.Session;
+import utilities.Log;
+import utilities.PasswordHasher;
+import utilities.PasswordHasher.Verification;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.Locale;
 
 import static utilities.DBConnection.getConnection;
 
 /**
  * Handles database operations related to users within the application. This class provides
  * methods for user authentication and retrieving a list of user IDs. It is responsible for
- * validating user credentials and facilitating the management of user-related data.
+ * validating user credentials, creating the session of the signed-in user and facilitating
+ * the management of user-related data.
  */
 public class UserDAO {
+    private static final Log log = Log.get(UserDAO.class);
 
     /**
      * Attempts to authenticate a user based on the provided username and password.
-     * The method checks the database for a matching username and compares the stored
-     * password with the provided one.
+     * The stored password may be a hash or, for accounts that have not logged in since hashing was
+     * introduced, plain text.
      * @param userName The username provided by the user.
      * @param password The password provided by the user.
      * @return A boolean indicating whether the authentication was successful. Returns
      * true if the username and password match the database record, otherwise false.
      * @throws SQLException if there is an error during database access.
+     * @see #authenticate(String, String)
      */
     public static boolean userAccess(String userName, String password) throws SQLException {
+        return authenticate(userName, password) != null;
+    }
+
+    /**
+     * The stored credentials of a user.
+     */
+    static final class Credentials {
+        final int userID;
+        final String userName;
+        final String password;
+
+        private Credentials(int userID, String userName, String password) {
+            this.userID = userID;
+            this.userName = userName;
+            this.password = password;
+        }
+    }
+
+    /**
+     * Authenticates a user and creates their session on the calling thread. The password is checked with
+     * {@link PasswordHasher}, which is slow on purpose; the login form uses
+     * {@link AsyncDAO#authenticate(String, String)} to keep it off the JavaFX application thread.
+     * @param userName The username provided by the user.
+     * @param password The password provided by the user.
+     * @return The session of the authenticated user, or null if the username and password do not match
+     * the database record.
+     * @throws SQLException if there is an error during database access.
+     */
+    public static Session authenticate(String userName, String password) throws SQLException {
 
         if (userName == null || userName.trim().isEmpty() || password == null || password.trim().isEmpty()) {
-            return false;
+            return null;
         }
 
-        String sqlQuery = "SELECT password FROM users WHERE User_Name = ?";
+        Credentials credentials = findCredentials(userName);
+        Verification verification = PasswordHasher.verify(password, credentials != null ? credentials.password : null);
+        return completeLogin(credentials, password, verification);
+    }
+
+    /**
+     * Reads the user's ID, name and stored password in one query, so nothing about the user has to be
+     * looked up again after login.
+     * @param userName The username provided by the user.
+     * @return The stored credentials, or null if there is no such user.
+     * @throws SQLException if there is an error during database access.
+     */
+    static Credentials findCredentials(String userName) throws SQLException {
+        String sqlQuery = "SELECT User_ID, User_Name, Password FROM users WHERE User_Name = ?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sqlQuery)) {
 
             ps.setString(1, userName);
             try (ResultSet resultSet = ps.executeQuery()) {
                 if (resultSet.next()) {
-                    String storedPassword = resultSet.getString("password");
-                    return storedPassword.equals(password);
+                    return new Credentials(resultSet.getInt("User_ID"), resultSet.getString("User_Name"),
+                            resultSet.getString("Password"));
                 }
             }
         }
-        return false;
+        return null;
+    }
+
+    /**
+     * Creates the session of a user whose password has been verified, first storing a new hash of the
+     * password if the stored one is in plain text or was made at a different cost. The session uses the
+     * system's time zone and locale.
+     * @param credentials The stored credentials, or null if there is no such user.
+     * @param password The password provided by the user.
+     * @param verification The result of checking the password against the stored one.
+     * @return The session, or null if the password did not match.
+     */
+    static Session completeLogin(Credentials credentials, String password, Verification verification) {
+        if (credentials == null || !verification.matches()) {
+            return null;
+        }
+        if (verification.needsRehash()) {
+            updatePassword(credentials.userID, PasswordHasher.hash(password), credentials.userName);
+        }
+        // The users table has no roles, so every user may do everything
+        return new Session(credentials.userID, credentials.userName,
+                ZoneId.systemDefault(), Locale.getDefault(), EnumSet.allOf(Session.Permission.class));
+    }
+
+    /**
+     * Replaces a user's stored password hash. A failure is logged and otherwise ignored, since the user
+     * has already been authenticated and the old value still works.
+     * @param userID The ID of the user.
+     * @param passwordHash The new hash, as made by {@link PasswordHasher#hash(String)}.
+     * @param updatedBy The username recorded as the last updater.
+     */
+    private static void updatePassword(int userID, String passwordHash, String updatedBy) {
+        String query = "UPDATE users SET Password = ?, Last_Update = NOW(), Last_Updated_By = ? WHERE User_ID = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
+            ps.setString(1, passwordHash);
+            ps.setString(2, updatedBy);
+            ps.setInt(3, userID);
+            ps.executeUpdate();
+            log.info("Rehashed the password of user " + updatedBy + " at " + PasswordHasher.getIterations() + " iterations");
+        } catch (SQLException e) {
+            log.warn("Could not store the new password hash of user " + updatedBy, e);
+        }
     }
 
     /**
@@ -58,10 +153,10 @@ public class UserDAO {
     public static ObservableList<Integer> getAllUserIDs() {
         ObservableList<Integer> userIDList = FXCollections.observableArrayList();
 
-        try{
-            String query = "SELECT User_ID FROM users";
+        String query = "SELECT User_ID FROM users";
 
-            PreparedStatement ps = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(query)) {
             ResultSet rs = ps.executeQuery();
 
             while(rs.next()) {
@@ -70,7 +165,7 @@ public class UserDAO {
             }
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("getAllUserIDs failed", e);
         }
         return userIDList;
     }
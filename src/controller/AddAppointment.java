@@ -1,20 +1,26 @@
 package controller;
 
+import DAO.AsyncDAO;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import model.Contact;
+import model.Recurrence;
+import utilities.SlotFinder;
 
 import java.net.URL;
+import java.sql.SQLException;
 import java.time.*;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.IntStream;
 
 import static DAO.AppointmentDAO.createAppointment;
-import static DAO.ContactDAO.getAllContacts;
-import static DAO.CustomerDAO.getAllCustomerIDs;
-import static DAO.UserDAO.getAllUserIDs;
+import static DAO.AppointmentDAO.createAppointmentSeries;
 import static utilities.ManageState.*;
 
 /**
@@ -34,8 +40,8 @@ public class AddAppointment implements Initializable {
     public TextField locationField;
     public ComboBox<Contact> contactComboField;
     public DatePicker endDatePicker;
-    public ComboBox customerIDComboField;
-    public ComboBox userIDField;
+    public ComboBox<Integer> customerIDComboField;
+    public ComboBox<Integer> userIDField;
 
     public Button cancelButton;
 
@@ -44,15 +50,27 @@ public class AddAppointment implements Initializable {
     public ComboBox<String> startTimeMinutes;
     public ComboBox<String> endTimeHour;
     public ComboBox<String> endTimeMinutes;
+    public ComboBox<String> repeatComboField;
+    public TextField occurrencesField;
+    public DatePicker repeatUntilPicker;
+    public Button findSlotsButton;
+    public ComboBox<SlotFinder.Slot> suggestedSlotsField;
     private ResourceBundle rb = getRB();
 
+    private static final String noRepeat = "Does not repeat";
+
     /**
      * Initializes the controller, setting up the Date Pickers and Combo Boxes.
+     * The contacts, user IDs and customer IDs are loaded in parallel in the background and applied together.
      * @param url The location used to resolve relative paths for the root object, or null if unknown.
      * @param resourceBundle The resources used to localize the root object, or null if not localized.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        CompletableFuture<ObservableList<Contact>> contacts = AsyncDAO.getAllContacts();
+        CompletableFuture<ObservableList<Integer>> userIDs = AsyncDAO.getAllUserIDs();
+        CompletableFuture<ObservableList<Integer>> customerIDs = AsyncDAO.getAllCustomerIDs();
+
         configureDatePickers();
 
         startTimeHour.getItems().addAll(IntStream.rangeClosed(0, 23).mapToObj(i -> String.format("%02d", i)).toList());
@@ -67,9 +85,20 @@ public class AddAppointment implements Initializable {
         endTimeHour.setValue("12");
         endTimeMinutes.setValue("00");
 
-        contactComboField.setItems(getAllContacts());
-        userIDField.setItems(getAllUserIDs());
-        customerIDComboField.setItems(getAllCustomerIDs());
+        repeatComboField.getItems().add(noRepeat);
+        for (Recurrence.Frequency frequency : Recurrence.Frequency.values()) {
+            repeatComboField.getItems().add(frequency.getLabel());
+        }
+        repeatComboField.setValue(noRepeat);
+
+        suggestedSlotsField.getSelectionModel().selectedItemProperty().addListener((obs, oldSlot, newSlot) -> applySlot(newSlot));
+
+        AsyncDAO.runOnFxThread(() -> {
+            contactComboField.setItems(contacts.join());
+            userIDField.setItems(userIDs.join());
+            userIDField.setValue(getSession().getUserID()); // Default to the signed-in user
+            customerIDComboField.setItems(customerIDs.join());
+        }, contacts, userIDs, customerIDs);
     }
 
     /**
@@ -77,7 +106,7 @@ public class AddAppointment implements Initializable {
      * @param actionEvent The event triggered when the save button is pressed.
      */
     public void onCancelButton(ActionEvent actionEvent) {
-        mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));
     }
 
     /**
@@ -100,8 +129,8 @@ public class AddAppointment implements Initializable {
         String startMinute = startTimeMinutes.getValue();
         String endHour = endTimeHour.getValue();
         String endMinute = endTimeMinutes.getValue();
-        int customerID = (int) customerIDComboField.getValue();
-        int userID = (int) userIDField.getValue();
+        int customerID = customerIDComboField.getValue();
+        int userID = userIDField.getValue();
         Contact contact = contactComboField.getValue();
 
 
@@ -113,10 +142,119 @@ public class AddAppointment implements Initializable {
         ZonedDateTime startZonedDateTime = LocalDateTime.of(start, startTime).atZone(defaultZoneId).withZoneSameInstant(ZoneId.of("UTC"));
         ZonedDateTime endZonedDateTime = LocalDateTime.of(end, endTime).atZone(defaultZoneId).withZoneSameInstant(ZoneId.of("UTC"));
 
+        Recurrence.Frequency frequency = Recurrence.Frequency.fromLabel(repeatComboField.getValue());
+        if (frequency != null) {
+            saveSeries(title, description, location, type, frequency, LocalDateTime.of(start, startTime).atZone(defaultZoneId),
+                    Duration.between(startZonedDateTime, endZonedDateTime), customerID, userID, contact);
+            return;
+        }
+
         if (validateAppointment(startZonedDateTime, endZonedDateTime, defaultZoneId, customerID)) {
-            createAppointment(title, description, location, type, startZonedDateTime, endZonedDateTime, customerID, userID, contact.getContactID());
-            mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));
+            createAppointment(title, description, location, type, startZonedDateTime, endZonedDateTime, customerID, userID, contact.getContactID(), getSession());
+            getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));
+        }
+    }
+
+    /**
+     * Saves a recurring appointment. The series is expanded in the user's time zone, every occurrence is
+     * validated, with a single overlap scan of the customer's appointments, and all occurrences are inserted
+     * in one transaction. Nothing is saved if any occurrence is invalid.
+     * @param frequency How often the appointment repeats.
+     * @param firstStart The start of the first occurrence, in the user's time zone.
+     * @param duration The length of each occurrence.
+     */
+    private void saveSeries(String title, String description, String location, String type, Recurrence.Frequency frequency, ZonedDateTime firstStart,
+                            Duration duration, int customerID, int userID, Contact contact) {
+        List<ZonedDateTime> starts;
+        try {
+            int count = occurrencesField.getText().trim().isEmpty() ? 0 : Integer.parseInt(occurrencesField.getText().trim());
+            Recurrence recurrence = new Recurrence(frequency, repeatUntilPicker.getValue(), count);
+            starts = recurrence.expand(firstStart);
+        } catch (NumberFormatException e) {
+            showAlert("Validation Error", "The number of occurrences must be a whole number.");
+            return;
+        } catch (IllegalArgumentException e) {
+            showAlert("Validation Error", e.getMessage());
+            return;
+        }
+
+        ValidationError error = checkSeries(starts, duration, firstStart.getZone(), customerID);
+        if (error != null) {
+            showAlert(error.getTitle(), error.getMessage());
+            return;
+        }
+        try {
+            int saved = createAppointmentSeries(title, description, location, type, starts, duration,
+                    customerID, userID, contact.getContactID(), getSession()).size();
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Series Created");
+            alert.setHeaderText(null);
+            alert.setContentText(saved + " appointments were created.");
+            alert.showAndWait();
+            getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));
+        } catch (SQLException e) {
+            showAlert("Database Error", "The appointments could not be saved. No appointment of the series was created.");
+        }
+    }
+
+    /**
+     * Handles the action triggered by clicking the 'Find Free Times' button. Searches, in the background, the
+     * business hours of the next {@link SlotFinder#searchDays} days from the start date for times when neither
+     * the customer nor the contact is booked, and offers the earliest ones in the suggested times box.
+     * The length of the appointment is taken from the start and end times.
+     * @param actionEvent The event triggered by the button click.
+     */
+    public void onFindSlotsButton(ActionEvent actionEvent) {
+        if (startTimeHour.getValue() == null || startTimeMinutes.getValue() == null ||
+                endTimeHour.getValue() == null || endTimeMinutes.getValue() == null ||
+                customerIDComboField.getValue() == null || contactComboField.getValue() == null) {
+            showAlert("Validation Error", "Please select a customer, a contact, and the start and end times first.");
+            return;
+        }
+        LocalDate from = startDatePickerField.getValue() != null ? startDatePickerField.getValue() : LocalDate.now();
+        LocalTime startTime = LocalTime.of(Integer.parseInt(startTimeHour.getValue()), Integer.parseInt(startTimeMinutes.getValue()));
+        LocalTime endTime = LocalTime.of(Integer.parseInt(endTimeHour.getValue()), Integer.parseInt(endTimeMinutes.getValue()));
+        if (Duration.between(startTime, endTime).toMinutes() < 15) {
+            showAlert("Duration Error", "Appointments must be at least 15 minutes long.");
+            return;
+        }
+
+        int customerID = customerIDComboField.getValue();
+        int contactID = contactComboField.getValue().getContactID();
+        int excludedAppointmentID = -1;
+        ZoneId zone = getUserZone();
+        CompletableFuture<List<SlotFinder.Slot>> slots = AsyncDAO.supplyAsync(() -> {
+            try {
+                return SlotFinder.suggestFreeSlots(customerID, contactID, startTime, endTime, from, zone, excludedAppointmentID);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        AsyncDAO.runOnFxThread(() -> {
+            suggestedSlotsField.getItems().setAll(slots.join());
+            if (slots.join().isEmpty()) {
+                showAlert("No Free Times", "Neither the customer nor the contact has a free time of that length in the next " +
+                        SlotFinder.searchDays + " days.");
+            } else {
+                suggestedSlotsField.show();
+            }
+        }, slots);
+    }
+
+    /**
+     * Fills the start and end fields with a suggested time.
+     * @param slot The chosen slot, or null when the suggestions are cleared.
+     */
+    private void applySlot(SlotFinder.Slot slot) {
+        if (slot == null) {
+            return;
         }
+        startDatePickerField.setValue(slot.getStart().toLocalDate());
+        startTimeHour.setValue(String.format("%02d", slot.getStart().getHour()));
+        startTimeMinutes.setValue(String.format("%02d", slot.getStart().getMinute()));
+        endDatePicker.setValue(slot.getEnd().toLocalDate());
+        endTimeHour.setValue(String.format("%02d", slot.getEnd().getHour()));
+        endTimeMinutes.setValue(String.format("%02d", slot.getEnd().getMinute()));
     }
 
     /**
@@ -13,10 +13,10 @@ import model.Division;
 import java.net.URL;
 import java.util.ResourceBundle;
 
-import static DAO.CountryDAO.getAllCountries;
 import static DAO.CustomerDAO.createCustomer;
-import static DAO.DivisionDAO.getAllDivisions;
-import static DAO.DivisionDAO.getDivisionsPerCountry;
+import static DAO.ReferenceData.getCountries;
+import static DAO.ReferenceData.getDivisions;
+import static DAO.ReferenceData.getDivisionsPerCountry;
 import static utilities.ManageState.*;
 
 /**
@@ -45,8 +45,8 @@ public class AddCustomer implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        countryCombo.setItems(getAllCountries());
-        divisionCombo.setItems(getAllDivisions());
+        countryCombo.setItems(getCountries());
+        divisionCombo.setItems(getDivisions());
     }
 
     /**
@@ -56,7 +56,7 @@ public class AddCustomer implements Initializable {
      * @param actionEvent The event triggered when the cancel button is pressed.
      */
     public void onCancelButton(ActionEvent actionEvent) {
-        mainBorderPane.setCenter(loadView("/view/Customers.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Customers.fxml", rb));
     }
 
     /**
@@ -91,9 +91,9 @@ public class AddCustomer implements Initializable {
             return;
         }
 
-        createCustomer(customerName, address, postalCode, phone, division.getDivisionID());
+        createCustomer(customerName, address, postalCode, phone, division.getDivisionID(), getSession());
 
-        mainBorderPane.setCenter(loadView("/view/Customers.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Customers.fxml", rb));
     }
 
     /**
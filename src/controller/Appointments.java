@@ -1,5 +1,7 @@
 package controller;
 
+import DAO.AsyncDAO;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -11,15 +13,22 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
+import javafx.stage.FileChooser;
 import javafx.util.Callback;
 import model.Appointment;
+import utilities.AppointmentImporter;
+import utilities.Log;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
-import java.time.format.FormatStyle;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import static DAO.AppointmentDAO.*;
 import static utilities.ManageState.*;
@@ -30,7 +39,8 @@ import static utilities.ManageState.*;
  * including initializing its Appointment tableView. The TableView contains a column which has
  * a three dot button that was added programmatically to the table.
  */
-public class Appointments implements Initializable {
+public class Appointments implements Initializable, Refreshable {
+    private static final Log log = Log.get(Appointments.class);
     public TableColumn appointmentID;
 
     public TableColumn title;
@@ -48,6 +58,7 @@ public class Appointments implements Initializable {
     public TableView<Appointment> appointmentsTable;
     public TableColumn optionsButton;
     public Button addAppointmentButton;
+    public Button importButton;
     public TabPane tabPane;
     public Tab weekView;
     public Tab monthView;
@@ -61,7 +72,7 @@ public class Appointments implements Initializable {
     @FXML
     private BorderPane mainBorderPane = getMainBorderPane();
     private final ResourceBundle rb = getRB();
-    private final Image image = new Image(getClass().getResourceAsStream("/resources/img.png"));
+    private static final Image image = new Image(Appointments.class.getResourceAsStream("/resources/img.png")); // Shared by every row
 
     private final ImageView imageView = new ImageView(image);
 
@@ -73,11 +84,10 @@ public class Appointments implements Initializable {
      * Specifically, this method:
      * - Loads numeric representations for months.
      * - Sets items in the 'typeComboBox' from fetched appointment types.
-     * - Populates 'appointmentsTable' with all appointments.
      * - Configures each column in 'appointmentsTable' to display appropriate fields from the Appointment model.
      * - Sets custom cell factories for 'startDate' and 'endDate' columns to convert UTC LocalDateTime to the system default timezone.
      * - Listens for changes in the selected tab to update the appointments table view accordingly.
-     * - Loads month-specific data and sets up options column interactions.
+     * - Sets up options column interactions. The appointments are loaded by {@link #refresh()} when the view is shown.
      * - Adds a three dot button programmatically on the last column of the table with the method 'setupOptionsColumn()'.
      *
      * @param url The location used to resolve relative paths for the root object, or null if the location is not known.
@@ -86,7 +96,6 @@ public class Appointments implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         loadMonthNumbers();
-        appointmentsTable.setItems(getAllAppointments());
 
         appointmentID.setCellValueFactory(new PropertyValueFactory<>("appointmentID"));
         title.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -103,8 +112,7 @@ public class Appointments implements Initializable {
                 if (item == null || empty) {
                     setText(null);
                 } else {
-                    ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-                    setText(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT).format(zdt));
+                    setText(formatUserTime(item));
                 }
             }
         });
@@ -117,8 +125,8 @@ public class Appointments implements Initializable {
                 if (item == null || empty) {
                     setText(null);
                 } else {
-                    ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-                    setText(DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT).format(zdt));                }
+                    setText(formatUserTime(item));
+                }
             }
         });
 
@@ -131,16 +139,23 @@ public class Appointments implements Initializable {
         monthYear.setText(formattedDate);
 
         tabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> {
-            System.out.println("Tab selected");
+            log.debug(() -> "Tab selected: " + (newTab != null ? newTab.getText() : null));
             if (newTab != null) {
                 updateTableView(LocalDate.now());
             }
         });
 
-        loadMonthData(LocalDate.now());
         setupOptionsColumn();
     }
 
+    /**
+     * Loads the appointments of the selected tab, in the background, each time the view is shown.
+     */
+    @Override
+    public void refresh() {
+        updateTableView(LocalDate.now());
+    }
+
     /**
      * Updates the content of the appointments table based on the currently selected tab in the tab pane.
      * This method determines which data set to load (either week or month view) by checking the currently selected tab
@@ -162,7 +177,7 @@ public class Appointments implements Initializable {
     /**
      * Loads and displays appointments for a given week into the appointments table.
      * This method calculates the start and end of the week based on the provided reference date,
-     * fetches appointments for this period, and then updates the table view to reflect this data.
+     * fetches appointments for this period in the background, and then updates the table view to reflect this data.
      * @param referenceDate The date from which the week's start (Monday) and end (Sunday) are calculated.
      *                      The reference date is adjusted to the previous or the same Monday, ensuring the week
      *                      starts from Monday regardless of the given date.
@@ -170,14 +185,14 @@ public class Appointments implements Initializable {
     private void loadWeekData(LocalDate referenceDate) {
         LocalDate startOfWeek = referenceDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
         LocalDate endOfWeek = startOfWeek.plusDays(6);
-        ObservableList<Appointment> weekAppointments = fetchAppointments(startOfWeek, endOfWeek);
-        appointmentsTable.setItems(weekAppointments);
+        CompletableFuture<ObservableList<Appointment>> weekAppointments = AsyncDAO.fetchAppointments(startOfWeek, endOfWeek);
+        AsyncDAO.runOnFxThread(() -> appointmentsTable.setItems(weekAppointments.join()), weekAppointments);
     }
 
     /**
      * Loads and displays appointments for the entire month based on a given reference date into the appointments table.
      * This method identifies the start and end of the month using the provided reference date, retrieves the appointments
-     * for this time frame, and updates the table view to display these appointments.
+     * for this time frame in the background, and updates the table view to display these appointments.
      * @param referenceDate The date used to determine the month for which appointments will be loaded. This date
      *                      helps in calculating the first and last day of the month.
      */
@@ -185,8 +200,8 @@ public class Appointments implements Initializable {
         YearMonth yearMonth = YearMonth.from(referenceDate);
         LocalDate startOfMonth = yearMonth.atDay(1);
         LocalDate endOfMonth = yearMonth.atEndOfMonth();
-        ObservableList<Appointment> monthAppointments = fetchAppointments(startOfMonth, endOfMonth);
-        appointmentsTable.setItems(monthAppointments);
+        CompletableFuture<ObservableList<Appointment>> monthAppointments = AsyncDAO.fetchAppointments(startOfMonth, endOfMonth);
+        AsyncDAO.runOnFxThread(() -> appointmentsTable.setItems(monthAppointments.join()), monthAppointments);
     }
 
     /**
@@ -203,8 +218,7 @@ public class Appointments implements Initializable {
             public TableCell<Appointment, Void> call(final TableColumn<Appointment, Void> param) {
                 final TableCell<Appointment, Void> cell = new TableCell<Appointment, Void>() {
                     private final Button btn = new Button();
-                    private final Image img = new Image(getClass().getResourceAsStream("/resources/img.png"));
-                    private final ImageView imgView = new ImageView(img);
+                    private final ImageView imgView = new ImageView(image);
 
                     {
                         imgView.setFitHeight(15);
@@ -266,11 +280,11 @@ public class Appointments implements Initializable {
         }
 
         // Log the editing action
-        System.out.println("Editing: " + appointment.getTitle());
+        log.debug(() -> "Editing: " + appointment.getTitle());
 
         // Load the appointment modification view and display it in the mainBorderPane
         Node appointmentEditView = loadView("/view/ModifyAppointmentForm.fxml", rb, appointment);
-        mainBorderPane.setCenter(appointmentEditView);
+        getMainBorderPane().setCenter(appointmentEditView);
     }
 
     /**
@@ -282,7 +296,7 @@ public class Appointments implements Initializable {
     private void deleteAppointment(Appointment appointment) {
         String appointmentDetails = "Appointment ID: " + appointment.getAppointmentID() +
                 ", Type: " + appointment.getType();
-        System.out.println("Canceling: " + appointmentDetails);
+        log.debug(() -> "Canceling: " + appointmentDetails);
 
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to cancel this appointment?", ButtonType.YES, ButtonType.NO);
         alert.showAndWait();  // Display the alert and wait for user response
@@ -295,7 +309,7 @@ public class Appointments implements Initializable {
             successAlert.setHeaderText(null);
             successAlert.setContentText("The appointment has been successfully canceled.\n" + appointmentDetails);
             successAlert.showAndWait();
-            mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));  // Refresh the main appointment view
+            getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));  // Refresh the main appointment view
         }
     }
 
@@ -305,11 +319,57 @@ public class Appointments implements Initializable {
      * @param actionEvent The event that triggered this action, typically a button click.
      */
     public void onAddAppointmentButton(ActionEvent actionEvent) {
-        mainBorderPane.setCenter(loadView("/view/AddAppointmentForm.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/AddAppointmentForm.fxml", rb));
+    }
+
+    /**
+     * Handles the action triggered by the 'Import CSV' button. The chosen file is imported in the background
+     * with {@link AppointmentImporter}, in the user's time zone, and the number of rows imported and rejected
+     * is shown when it finishes. Rejected rows are written to a report next to the file.
+     * @param actionEvent The event triggered by the button click.
+     */
+    public void onImportButton(ActionEvent actionEvent) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Appointments");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(importButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        Path csv = file.toPath();
+        Path report = AppointmentImporter.rejectedReportFor(csv);
+        ZoneId zone = getUserZone();
+        importButton.setDisable(true);
+        CompletableFuture<AppointmentImporter.ImportResult> result = AsyncDAO.supplyAsync(() -> {
+            try {
+                return AppointmentImporter.importFile(csv, report, zone, getSession());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        result.whenComplete((imported, error) -> Platform.runLater(() -> {
+            importButton.setDisable(false);
+            if (error != null) {
+                log.error("Import of " + csv + " failed", error);
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                String message = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                showAlert("Import Failed", "The file could not be imported: " + message);
+                return;
+            }
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Import Finished");
+            alert.setHeaderText(null);
+            alert.setContentText(imported.getImported() + " of " + imported.getRowsRead() + " appointments were imported." +
+                    (imported.getRejected() > 0 ? "\nThe " + imported.getRejected() + " rejected rows are listed in " + report + "." : ""));
+            alert.showAndWait();
+            refresh();
+        }));
     }
 
     /**
-     * Handles the fetch action on a UI button to retrieve the number of appointment types based on selected month.
+     * Handles the fetch action on a UI button to retrieve the number of appointment types based on selected month
+     * of the current year, in the user's time zone.
      * Validates that the month was selected before proceeding. If is not selected,
      * it displays a validation error. If valid, it fetches and displays the count of appointments for the selected
      * criteria.
@@ -326,9 +386,11 @@ public class Appointments implements Initializable {
         int month = monthComboBox.getValue();
 
         // Fetch and display the number of appointments based on the month
-        monthTypeTable.setItems(countAppointmentsByTypeForMonth(month));
+        YearMonth yearMonth = YearMonth.of(LocalDate.now().getYear(), month);
         filterType.setCellValueFactory(new PropertyValueFactory<>("type"));
         filterTotal.setCellValueFactory(new PropertyValueFactory<>("total"));
+        CompletableFuture<ObservableList<Appointment>> typeCounts = AsyncDAO.countAppointmentsByTypeForMonth(yearMonth, getUserZone());
+        AsyncDAO.runOnFxThread(() -> monthTypeTable.setItems(typeCounts.join()), typeCounts);
     }
 
     /**
@@ -1,5 +1,9 @@
 package controller;
 
+import DAO.AsyncDAO;
+import DAO.CustomerDAO;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.geometry.Side;
@@ -12,14 +16,15 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.util.Callback;
 import model.Customer;
+import utilities.Log;
 
 import java.net.URL;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
-import static DAO.AppointmentDAO.deleteAllAppointmentsForCustomer;
-import static DAO.CustomerDAO.deleteCustomerFromDB;
-import static DAO.CustomerDAO.getAllCustomers;
 import static utilities.ManageState.*;
 
 /**
@@ -29,8 +34,10 @@ import static utilities.ManageState.*;
  * including initializing the Customer table. The TableView contains a column which has
  * a three dot button that was added programmatically to the table.
  */
-public class Customers implements Initializable {
+public class Customers implements Initializable, Refreshable {
+    private static final Log log = Log.get(Customers.class);
     public Button addCustomer;
+    public Button deleteSelected;
 
     public TableColumn customerID;
 
@@ -44,15 +51,15 @@ public class Customers implements Initializable {
 
     public BorderPane mainBorderPane;
     private ResourceBundle rb = getRB();
-    private final Image image = new Image(getClass().getResourceAsStream("/resources/img.png"));
+    private static final Image image = new Image(Customers.class.getResourceAsStream("/resources/img.png")); // Shared by every row
 
     private final ImageView imageView = new ImageView(image);
 
     @Override
     /**
      * Initializes the controller class for the customer management screen. This method configures the
-     * customersTable to display data retrieved from the database, setting up column bindings and
-     * loading all customers into the table. It also configures a custom options column for additional
+     * customersTable to display data retrieved from the database, setting up column bindings; the customers
+     * are loaded by {@link #refresh()} when the view is shown. It also configures a custom options column for additional
      * actions like editing or deleting customers.
      * @param url The location used to resolve relative paths for the root object, or null if the location is not known.
      * @param resourceBundle The resources used to localize the root object, or null if the root object was not localized.
@@ -66,9 +73,6 @@ public class Customers implements Initializable {
      * - customerDivision column displays the customer's division.
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        // Set the items of the customer table by fetching all customers from the database.
-        customersTable.setItems(getAllCustomers());
-
         // Bind the table columns to the corresponding properties in the Customer model.
         customerID.setCellValueFactory(new PropertyValueFactory<>("customerID"));
         customerName.setCellValueFactory(new PropertyValueFactory<>("customerName"));
@@ -77,10 +81,22 @@ public class Customers implements Initializable {
         customerPhone.setCellValueFactory(new PropertyValueFactory<>("phone"));
         customerDivision.setCellValueFactory(new PropertyValueFactory<>("division"));
 
+        // Allow several customers to be selected and deleted together.
+        customersTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
         // Setup additional options like edit and delete for each row in the table.
         setupOptionsColumn();
     }
 
+    /**
+     * Loads all customers in the background and sets them as the table items. Called each time the view is shown.
+     */
+    @Override
+    public void refresh() {
+        CompletableFuture<ObservableList<Customer>> customers = AsyncDAO.getAllCustomers();
+        AsyncDAO.runOnFxThread(() -> customersTable.setItems(customers.join()), customers);
+    }
+
     /**
      * Configures the options column in the customer table with buttons for each row.
      * These buttons are set up with icons and actions that open a context menu offering options to edit or delete the customer.
@@ -133,13 +149,7 @@ public class Customers implements Initializable {
         contextMenu.getItems().addAll(editItem, deleteItem);
 
         editItem.setOnAction(e -> editCustomer(customer));
-        deleteItem.setOnAction(e -> {
-            try {
-                deleteCustomer(customer);
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
-            }
-        });
+        deleteItem.setOnAction(e -> deleteCustomers(Collections.singletonList(customer)));
 
         contextMenu.show(button, Side.BOTTOM, 0, 0);
     }
@@ -150,35 +160,74 @@ public class Customers implements Initializable {
      * @param customer The customer to be edited.
      */
     private void editCustomer(Customer customer) {
-        System.out.println("Editing: " + customer.getCustomerName());
+        log.debug(() -> "Editing: " + customer.getCustomerName());
         Node customerEditView = loadView("/view/ModifyCustomerForm.fxml", rb, customer);
-        mainBorderPane.setCenter(customerEditView);
+        getMainBorderPane().setCenter(customerEditView);
     }
 
     /**
-     * Initiates the deletion of the specified customer after confirmation.
-     * An alert dialog asks for confirmation, and if confirmed, the customer is deleted from the database,
-     * and the customer view is refreshed.
-     * @param customer The customer to be deleted.
+     * Handles the action triggered by the 'Delete Selected' button by deleting every selected customer.
+     * @param actionEvent The event triggered by the button click.
      */
-    private void deleteCustomer(Customer customer) throws SQLException {
-        if(customer != null) {
-            String name = customer.getCustomerName();
-            System.out.println("Deleting: " + name);
-            Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to delete " + name + "?", ButtonType.YES, ButtonType.NO);
-            alert.showAndWait();
-
-            if (alert.getResult() == ButtonType.YES) {
-                deleteAllAppointmentsForCustomer(customer.getCustomerID());
-                deleteCustomerFromDB(customer.getCustomerID());
-                Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
-                successAlert.setTitle("Deletion Successful");
-                successAlert.setHeaderText(null);
-                successAlert.setContentText("The customer '" + name + "' and related appointments were successfully deleted.");
-                successAlert.showAndWait();
-                mainBorderPane.setCenter(loadView("/view/Customers.fxml", rb));
-            }
+    public void onDeleteSelected(ActionEvent actionEvent) {
+        List<Customer> selected = new ArrayList<>(customersTable.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            showAlert("No Selection", "Select one or more customers to delete.");
+            return;
+        }
+        deleteCustomers(selected);
+    }
+
+    /**
+     * Initiates the deletion of the given customers after confirmation.
+     * An alert dialog asks for confirmation, and if confirmed, the customers and all of their appointments
+     * are deleted in a single background transaction. The number of rows removed is then reported and the
+     * customer view is refreshed. If the deletion fails, nothing is deleted.
+     * @param customers The customers to be deleted.
+     */
+    private void deleteCustomers(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        String subject = customers.size() == 1
+                ? customers.get(0).getCustomerName()
+                : customers.size() + " customers";
+        log.debug(() -> "Deleting: " + subject);
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Are you sure you want to delete " + subject + "?", ButtonType.YES, ButtonType.NO);
+        alert.showAndWait();
+        if (alert.getResult() != ButtonType.YES) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            ids.add(customer.getCustomerID());
         }
+        deleteSelected.setDisable(true);
+        AsyncDAO.deleteCustomers(ids).whenComplete((result, error) -> Platform.runLater(() -> {
+            deleteSelected.setDisable(false);
+            if (error != null) {
+                log.error("Deleting " + ids.size() + " customers failed", error);
+                showAlert("Deletion Failed", "No customers were deleted. Please try again.");
+                return;
+            }
+            reportDeletion(subject, result);
+            refresh();
+        }));
+    }
+
+    /**
+     * Tells the user how many customers and appointments were removed.
+     * @param subject The name of the deleted customer, or the number of customers selected.
+     * @param result The number of rows removed.
+     */
+    private void reportDeletion(String subject, CustomerDAO.DeleteResult result) {
+        Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
+        successAlert.setTitle("Deletion Successful");
+        successAlert.setHeaderText(null);
+        successAlert.setContentText("Deleted " + subject + ": " + result.getCustomersDeleted() + " customer(s) and "
+                + result.getAppointmentsDeleted() + " related appointment(s) were removed.");
+        successAlert.showAndWait();
     }
 
     /**
@@ -187,7 +236,7 @@ public class Customers implements Initializable {
      * @param actionEvent The event triggered by the button click.
      */
     public void onAddCustomer(ActionEvent actionEvent) {
-        mainBorderPane.setCenter(loadView("/view/AddCustomerForm.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/AddCustomerForm.fxml", rb));
     }
 
 }
@@ -1,5 +1,8 @@
 package controller;
 
+import DAO.AsyncDAO;
+import DAO.ReferenceData;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
@@ -8,16 +11,18 @@ import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import model.Appointment;
+import model.Session;
+import utilities.Log;
+import utilities.LoginThrottle;
 import utilities.ManageState;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.SQLException;
+import java.text.MessageFormat;
 import java.time.ZoneId;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
-import static DAO.AppointmentDAO.getUpcomingAppointmentForUser;
-import static DAO.UserDAO.userAccess;
 import static utilities.ManageState.getRB;
 
 /**
@@ -26,6 +31,7 @@ import static utilities.ManageState.getRB;
  * to sign in to the scheduling too application.
  */
 public class LoginForm implements Initializable {
+    private static final Log log = Log.get(LoginForm.class);
     public Label signInText;
     public Label locationLabel;
     public TextField emailField;
@@ -44,7 +50,7 @@ public class LoginForm implements Initializable {
      */
     public void initialize(URL url, ResourceBundle rb) {
         ZoneId zoneId = ZoneId.systemDefault();
-        System.out.println(zoneId);
+        log.debug(() -> "System time zone: " + zoneId);
         locationLabel.setText(String.valueOf(zoneId));
 
         signInText.setText(rb.getString("sign_in"));
@@ -54,25 +60,58 @@ public class LoginForm implements Initializable {
     }
 
     /**
-     * Handles the login button action. This method validates the user credentials and processes the login attempt.
-     * If successful, it logs the attempt, hides the error message, and loads the main application screen,
-     * potentially passing any relevant data like upcoming appointments. If unsuccessful, it displays an error message.
+     * Handles the login button action. This method checks the user credentials in the background and processes
+     * the login attempt once they have been verified, so the form stays responsive while the password hash is checked.
+     * The login button is disabled until the check finishes.
      * @param actionEvent The event that triggered this method, generally the clicking of the login button.
-     * @throws SQLException If there's an error during the database access required for user validation.
-     * @throws IOException If there's an error loading the next scene or related resources.
      */
-    public void onLoginButton(ActionEvent actionEvent) throws SQLException, IOException {
+    public void onLoginButton(ActionEvent actionEvent) {
         String userName = emailField.getText();
         String password = passwordField.getText();
+        long clickedAtNanos = System.nanoTime();
 
+        // Turn away excessive attempts before they reach the database
+        LoginThrottle.Decision decision = LoginThrottle.tryAcquire(userName);
+        if (!decision.isAllowed()) {
+            LoginTracker.logLoginAttempt(userName, false);
+            loginError.setText(MessageFormat.format(rb.getString("login_throttled"), decision.getRetryAfterSeconds()));
+            loginError.setVisible(true);
+            return;
+        }
+
+        loginButton.setDisable(true);
+        AsyncDAO.authenticate(userName, password).whenComplete((session, error) -> Platform.runLater(() -> {
+            loginButton.setDisable(false);
+            if (error != null) {
+                showLoginError(userName, error);
+                return;
+            }
+            onAuthenticated(userName, session, clickedAtNanos);
+        }));
+    }
+
+    /**
+     * Processes a login attempt whose credentials have been checked. If successful, it logs the attempt, hides the
+     * error message, and loads the main application screen, potentially passing any relevant data like upcoming
+     * appointments. If unsuccessful, it displays an error message. The upcoming appointment is queried in the
+     * background and shown once it arrives, so the dashboard opens without waiting for the database.
+     * @param userName The username that was entered.
+     * @param session The session of the user, or null if the credentials did not match.
+     * @param clickedAtNanos When the login button was pressed, as returned by {@link System#nanoTime()}.
+     */
+    private void onAuthenticated(String userName, Session session, long clickedAtNanos) {
         try {
-            boolean isSuccess = userAccess(userName, password);
-            LoginTracker.logLoginAttempt(userName, isSuccess);
-            if (isSuccess) {
+            LoginTracker.logLoginAttempt(userName, session != null);
+            if (session != null) {
                 loginError.setVisible(false);  // Hide error message on successful login
+                LoginThrottle.reset(userName);
+                ManageState.setSession(session);
+
+                // Cache the combo box data the forms need while the main screen loads
+                ReferenceData.load();
 
-                // Fetch upcoming appointment
-                Appointment upcomingAppointment = getUpcomingAppointmentForUser(ZoneId.systemDefault());
+                // Fetch upcoming appointment while the main screen is built
+                CompletableFuture<Appointment> upcomingAppointment = AsyncDAO.getUpcomingAppointmentForUser(session.getZoneId());
 
                 // Load main screen
                 Scene scene = ManageState.getScene("/view/MainScreen.fxml");
@@ -81,22 +120,36 @@ public class LoginForm implements Initializable {
                 }
 
                 MainScreen controller = (MainScreen) scene.getUserData();
-                if (controller != null && upcomingAppointment != null) {
-                    controller.displayUpcomingAppointment(upcomingAppointment);
-                } else {
-                    System.out.println("Controller is null");
+                if (controller != null) {
+                    controller.applySession(session);
+                    controller.refresh();
                 }
 
                 ManageState.switchScene("Calendar", scene);
+                log.info("Login to dashboard took " + (System.nanoTime() - clickedAtNanos) / 1_000_000 + " ms");
+
+                upcomingAppointment.whenComplete((appointment, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        log.error("Could not load the upcoming appointment", error);
+                    } else if (controller != null && appointment != null) {
+                        controller.displayUpcomingAppointment(appointment);
+                    } else {
+                        log.debug(() -> "No upcoming appointment to display");
+                    }
+                }));
             } else {
                 loginError.setText(rb.getString("login_error"));
                 loginError.setVisible(true);
             }
-        } catch (SQLException | IOException e) {
-            loginError.setText("Error");
-            loginError.setVisible(true);
-            e.printStackTrace();
+        } catch (IOException e) {
+            showLoginError(userName, e);
         }
     }
 
+    private void showLoginError(String userName, Throwable error) {
+        loginError.setText("Error");
+        loginError.setVisible(true);
+        log.error("Login failed for user " + userName, error);
+    }
+
 }
@@ -1,5 +1,7 @@
 package controller;
 
+import DAO.AsyncDAO;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -9,15 +11,15 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
 import model.Appointment;
 import model.Contact;
+import model.Session;
+import utilities.TablePager;
 
 import java.net.URL;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import static DAO.AppointmentDAO.*;
-import static DAO.ContactDAO.getAllContacts;
 import static utilities.ManageState.*;
 
 /**
@@ -28,7 +30,7 @@ import static utilities.ManageState.*;
  * Implements both Initializable for basic initialization upon loading and InitializableWithData
  * for dynamic data-driven initialization.
  */
-public class MainScreen implements Initializable, InitializableWithData {
+public class MainScreen implements Initializable, InitializableWithData, Refreshable {
     @FXML
     public BorderPane mainBorderPane;
     @FXML
@@ -37,6 +39,8 @@ public class MainScreen implements Initializable, InitializableWithData {
     public Button overviewButton;
     @FXML
     public Button appointmentsButton;
+    @FXML
+    public Button reportsButton;
 
     public Label nextAppointment;
     public Label addButton;
@@ -51,18 +55,19 @@ public class MainScreen implements Initializable, InitializableWithData {
     public TableView<Appointment> appointmentsPerContact;
     public Label appointmentsTomorrow;
     private ResourceBundle rb = getRB();
+    private TablePager<Appointment> pager;
 
     /**
      * Initializes the controller class. This method is automatically called after the FXML file has been loaded.
-     * It sets up the components with necessary data and behaviors such as filling combo boxes and setting up table columns.
+     * It sets up the table columns; the data is loaded by {@link #refresh()} after login, since the main screen
+     * may be parsed in the background before anyone has logged in.
      * @param url The location used to resolve relative paths for the root object, or {@code null} if unknown.
      * @param resourceBundle The resources used to localize the root object, or {@code null} if not localized.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        contactComboBox.setItems(getAllContacts());
-        appointmentsTomorrow.setText(String.valueOf(getCountOfAppointmentsForNextDay()));
-        appointmentsPerContact.setItems(getAllAppointments());
+        pager = new TablePager<>(appointmentsPerContact,
+                (last, size) -> getAppointmentsPage(last == null ? 0 : last.getAppointmentID(), size), pageSize);
 
         appointmentID.setCellValueFactory(new PropertyValueFactory<>("appointmentID"));
         title.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -78,8 +83,7 @@ public class MainScreen implements Initializable, InitializableWithData {
                     setText(null);
                 } else {
                     // Convert UTC LocalDateTime to local time zone
-                    ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-                    setText(zdt.toLocalDateTime().toString()); // Default LocalDateTime toString format
+                    setText(toUserTime(item).toString()); // Default LocalDateTime toString format
                 }
             }
         });
@@ -92,8 +96,7 @@ public class MainScreen implements Initializable, InitializableWithData {
                 if (item == null || empty) {
                     setText(null);
                 } else {
-                    ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-                    setText(zdt.toLocalDateTime().toString()); // Default LocalDateTime toString format
+                    setText(toUserTime(item).toString()); // Default LocalDateTime toString format
                 }
             }
         });
@@ -101,6 +104,21 @@ public class MainScreen implements Initializable, InitializableWithData {
         customerID.setCellValueFactory(new PropertyValueFactory<>("customerID"));
     }
 
+    /**
+     * Loads the contacts, the count of tomorrow's appointments in the user's time zone and the first page of
+     * appointments in the background. Called on the JavaFX application thread once the user has logged in.
+     */
+    @Override
+    public void refresh() {
+        CompletableFuture<ObservableList<Contact>> contacts = AsyncDAO.getAllContacts();
+        CompletableFuture<Integer> countTomorrow = AsyncDAO.getCountOfAppointmentsForNextDay(getUserZone());
+        AsyncDAO.runOnFxThread(() -> {
+            contactComboBox.setItems(contacts.join());
+            appointmentsTomorrow.setText(String.valueOf(countTomorrow.join()));
+        }, contacts, countTomorrow);
+        pager.reload();
+    }
+
     /**
      * Initializes the controller with dynamic data when required. This method allows for the flexible
      * initialization of the controller's state based on data passed at runtime.
@@ -125,6 +143,7 @@ public class MainScreen implements Initializable, InitializableWithData {
      * @param actionEvent The event that triggered this action.
      */
     public void onCustomers(ActionEvent actionEvent) {
+        reportsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         overviewButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         customersButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1);");
@@ -137,6 +156,7 @@ public class MainScreen implements Initializable, InitializableWithData {
      * @param actionEvent The event that triggered this action.
      */
     public void onOverview(ActionEvent actionEvent) {
+        reportsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         customersButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         overviewButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1); -fx-cursor: hand");
         appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
@@ -149,12 +169,37 @@ public class MainScreen implements Initializable, InitializableWithData {
      * @param actionEvent The event that triggered this action.
      */
     public void onAppointments(ActionEvent actionEvent) {
+        reportsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         customersButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         overviewButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1);");
         mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));
     }
 
+    /**
+     * Shows only the navigation the signed-in user is allowed to use. Called at login, since the main
+     * screen may have been loaded before anyone logged in.
+     * @param session The session of the signed-in user.
+     */
+    public void applySession(Session session) {
+        boolean canViewReports = session.hasPermission(Session.Permission.VIEW_REPORTS);
+        reportsButton.setVisible(canViewReports);
+        reportsButton.setManaged(canViewReports);
+    }
+
+    /**
+     * Handles the action triggered by clicking the 'Reports' button. This method changes the
+     * center pane of the main border pane to the login activity report.
+     * @param actionEvent The event that triggered this action.
+     */
+    public void onReports(ActionEvent actionEvent) {
+        customersButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
+        overviewButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
+        appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
+        reportsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1);");
+        mainBorderPane.setCenter(loadView("/view/Report.fxml", rb));
+    }
+
     /**
      * Handles the action triggered by selecting an item in the contact combo box. This method updates the appointments table
      * to show appointments related to the selected contact. It ensures that only the appointments linked to the selected
@@ -176,6 +221,7 @@ public class MainScreen implements Initializable, InitializableWithData {
      * @param mouseEvent The mouse event that triggered this method, typically the clicking of the 'Add' button.
      */
     public void onAddButton(MouseEvent mouseEvent) {
+        reportsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         customersButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         overviewButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6); -fx-cursor: hand");
         appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1);");
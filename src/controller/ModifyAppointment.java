@@ -1,22 +1,27 @@
 package controller;
 
+import DAO.AsyncDAO;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import model.Appointment;
+import utilities.SlotFinder;
 
 import java.net.URL;
+import java.sql.SQLException;
 import java.time.*;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static DAO.AppointmentDAO.editAppointment;
-import static DAO.ContactDAO.getAllContactIDs;
-import static DAO.ContactDAO.getAllContacts;
 import static DAO.CustomerDAO.getAllCustomerIDs;
-import static DAO.UserDAO.getAllUserIDs;
+import static DAO.ReferenceData.getContactIDs;
+import static DAO.ReferenceData.getUserIDs;
 import static utilities.ManageState.*;
 
 /**
@@ -40,11 +45,13 @@ public class ModifyAppointment implements Initializable, InitializableWithData {
     public DatePicker endDatePicker;
     public ComboBox<String> endTimeHour;
     public ComboBox<String> endTimeMinutes;
-    public ComboBox customerIDComboField;
-    public ComboBox contactComboField;
-    public ComboBox userIDField;
+    public ComboBox<Integer> customerIDComboField;
+    public ComboBox<Integer> contactComboField;
+    public ComboBox<Integer> userIDField;
     public Button cancelButton;
     public Button saveButton;
+    public Button findSlotsButton;
+    public ComboBox<SlotFinder.Slot> suggestedSlotsField;
     private Appointment appointment;
     private ResourceBundle rb = getRB();
 
@@ -63,6 +70,9 @@ public class ModifyAppointment implements Initializable, InitializableWithData {
         // Setup date pickers to use specific date formats or constraints
         configureDatePickers();
 
+        // Fill the start and end fields when a suggested free time is chosen
+        suggestedSlotsField.getSelectionModel().selectedItemProperty().addListener((obs, oldSlot, newSlot) -> applySlot(newSlot));
+
         // Populate time selection combo boxes with hours and minutes, formatted to two digits
         startTimeHour.getItems().addAll(
                 IntStream.rangeClosed(0, 23)
@@ -87,8 +97,8 @@ public class ModifyAppointment implements Initializable, InitializableWithData {
         );
 
         // Load dynamic data into combo boxes for contacts, user IDs, and customer IDs
-        contactComboField.setItems(getAllContactIDs());
-        userIDField.setItems(getAllUserIDs());
+        contactComboField.setItems(getContactIDs());
+        userIDField.setItems(getUserIDs());
         customerIDComboField.setItems(getAllCustomerIDs());
     }
 
@@ -140,7 +150,7 @@ public class ModifyAppointment implements Initializable, InitializableWithData {
      */
     public void onCancelButton(ActionEvent actionEvent) {
         // Load the Appointments view into the main panel, discarding any changes made.
-        mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));
     }
 
     /**
@@ -169,9 +179,9 @@ public class ModifyAppointment implements Initializable, InitializableWithData {
         String startMinute = String.valueOf(startTimeMinutes.getValue());
         String endHour = String.valueOf(endTimeHour.getValue());
         String endMinute = String.valueOf(endTimeMinutes.getValue());
-        int customerID = (int) customerIDComboField.getValue();
-        int userID = (int) userIDField.getValue();
-        int contactID = (int) contactComboField.getValue();
+        int customerID = customerIDComboField.getValue();
+        int userID = userIDField.getValue();
+        int contactID = contactComboField.getValue();
         int appointmentId = Integer.parseInt(idField.getText());
 
         // Prepare and convert date and time
@@ -183,9 +193,69 @@ public class ModifyAppointment implements Initializable, InitializableWithData {
 
         // Validate and save the appointment if valid
         if (validateAppointment(startZonedDateTime, endZonedDateTime, defaultZoneId, customerID, appointmentId)) {
-            editAppointment(title, description, location, type, startZonedDateTime, endZonedDateTime, customerID, userID, contactID, appointmentId);
-            mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));
+            editAppointment(title, description, location, type, startZonedDateTime, endZonedDateTime, customerID, userID, contactID, appointmentId, getSession());
+            getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));
+        }
+    }
+
+    /**
+     * Handles the action triggered by clicking the 'Find Free Times' button. Searches, in the background, the
+     * business hours of the next {@link SlotFinder#searchDays} days from the start date for times when neither
+     * the customer nor the contact is booked, and offers the earliest ones in the suggested times box.
+     * The length of the appointment is taken from the start and end times.
+     * @param actionEvent The event triggered by the button click.
+     */
+    public void onFindSlotsButton(ActionEvent actionEvent) {
+        if (startTimeHour.getValue() == null || startTimeMinutes.getValue() == null ||
+                endTimeHour.getValue() == null || endTimeMinutes.getValue() == null ||
+                customerIDComboField.getValue() == null || contactComboField.getValue() == null) {
+            showAlert("Validation Error", "Please select a customer, a contact, and the start and end times first.");
+            return;
+        }
+        LocalDate from = startDatePickerField.getValue() != null ? startDatePickerField.getValue() : LocalDate.now();
+        LocalTime startTime = LocalTime.of(Integer.parseInt(startTimeHour.getValue()), Integer.parseInt(startTimeMinutes.getValue()));
+        LocalTime endTime = LocalTime.of(Integer.parseInt(endTimeHour.getValue()), Integer.parseInt(endTimeMinutes.getValue()));
+        if (Duration.between(startTime, endTime).toMinutes() < 15) {
+            showAlert("Duration Error", "Appointments must be at least 15 minutes long.");
+            return;
+        }
+
+        int customerID = customerIDComboField.getValue();
+        int contactID = contactComboField.getValue();
+        int excludedAppointmentID = appointment != null ? appointment.getAppointmentID() : -1;
+        ZoneId zone = getUserZone();
+        CompletableFuture<List<SlotFinder.Slot>> slots = AsyncDAO.supplyAsync(() -> {
+            try {
+                return SlotFinder.suggestFreeSlots(customerID, contactID, startTime, endTime, from, zone, excludedAppointmentID);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        AsyncDAO.runOnFxThread(() -> {
+            suggestedSlotsField.getItems().setAll(slots.join());
+            if (slots.join().isEmpty()) {
+                showAlert("No Free Times", "Neither the customer nor the contact has a free time of that length in the next " +
+                        SlotFinder.searchDays + " days.");
+            } else {
+                suggestedSlotsField.show();
+            }
+        }, slots);
+    }
+
+    /**
+     * Fills the start and end fields with a suggested time.
+     * @param slot The chosen slot, or null when the suggestions are cleared.
+     */
+    private void applySlot(SlotFinder.Slot slot) {
+        if (slot == null) {
+            return;
         }
+        startDatePickerField.setValue(slot.getStart().toLocalDate());
+        startTimeHour.setValue(String.format("%02d", slot.getStart().getHour()));
+        startTimeMinutes.setValue(String.format("%02d", slot.getStart().getMinute()));
+        endDatePicker.setValue(slot.getEnd().toLocalDate());
+        endTimeHour.setValue(String.format("%02d", slot.getEnd().getHour()));
+        endTimeMinutes.setValue(String.format("%02d", slot.getEnd().getMinute()));
     }
 
     /**
@@ -16,10 +16,10 @@ import model.Division;
 import java.net.URL;
 import java.util.ResourceBundle;
 
-import static DAO.CountryDAO.getAllCountries;
 import static DAO.CustomerDAO.editCustomer;
-import static DAO.DivisionDAO.getAllDivisions;
-import static DAO.DivisionDAO.getDivisionsPerCountry;
+import static DAO.ReferenceData.getCountries;
+import static DAO.ReferenceData.getDivisions;
+import static DAO.ReferenceData.getDivisionsPerCountry;
 import static utilities.ManageState.*;
 
 /**
@@ -54,7 +54,7 @@ public class ModifyCustomer implements Initializable, InitializableWithData {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        ObservableList<Country> countries = getAllCountries();
+        ObservableList<Country> countries = getCountries();
         countryCombo.setItems(countries);
 
         // Set up the listener for the country combo box to update divisions based on the selected country
@@ -96,7 +96,7 @@ public class ModifyCustomer implements Initializable, InitializableWithData {
      * @param actionEvent The event triggered when the cancel button is pressed.
      */
     public void onCancelButton(ActionEvent actionEvent) {
-        mainBorderPane.setCenter(loadView("/view/Customers.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Customers.fxml", rb));
     }
     /**
      * Handles the save action triggered by clicking the 'Save' button on the customer modification form.
@@ -128,10 +128,10 @@ public class ModifyCustomer implements Initializable, InitializableWithData {
         }
 
         // Call the method to edit customer data in the database
-        editCustomer(customerName, address, postalCode, phone, division.getDivisionID(), customerId);
+        editCustomer(customerName, address, postalCode, phone, division.getDivisionID(), customerId, getSession());
 
         // Reload the Customers view into the main panel
-        mainBorderPane.setCenter(loadView("/view/Customers.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Customers.fxml", rb));
     }
 
 
@@ -151,8 +151,8 @@ public class ModifyCustomer implements Initializable, InitializableWithData {
             customerID.setText(String.valueOf(customer.getCustomerID()));
 
             // Attempt to set the corresponding country and division based on existing customer data
-            ObservableList<Division> divisions = getAllDivisions();
-            ObservableList<Country> countries = getAllCountries();
+            ObservableList<Division> divisions = getDivisions();
+            ObservableList<Country> countries = getCountries();
 
             int countryID = 0;
             for (Division division : divisions) {
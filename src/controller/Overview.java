@@ -1,34 +1,49 @@
 package controller;
 
+import DAO.AsyncDAO;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.paint.Color;
 import model.Appointment;
 import model.Contact;
 import model.Customer;
+import utilities.AvailabilityIndex;
+import utilities.TablePager;
 
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import static DAO.AppointmentDAO.*;
-import static DAO.ContactDAO.getAllContacts;
+import static DAO.AppointmentDAO.getAppointmentsPage;
+import static DAO.AppointmentDAO.pageSize;
+import static utilities.ManageState.businessZone;
+import static utilities.ManageState.getMainBorderPane;
 import static utilities.ManageState.getRB;
+import static utilities.ManageState.getUserZone;
 import static utilities.ManageState.loadView;
+import static utilities.ManageState.toUserTime;
 
 /**
  * Controller for the Overview GUI of the application.
  * This class is responsible for handling all user interactions on the Overview GUI,
  * including initializing all the dynamic information shown on this view.
  */
-public class Overview implements Initializable, InitializableWithData {
+public class Overview implements Initializable, InitializableWithData, Refreshable {
 
     @FXML
     public BorderPane mainBorderPane;
@@ -50,46 +65,155 @@ public class Overview implements Initializable, InitializableWithData {
     public TableColumn customerID;
     public Label appointmentsTomorrow;
     public Label addButton;
+    public Canvas availabilityHeatmap;
+    public Label heatmapMonth;
+    public Button previousMonthButton;
+    public Button nextMonthButton;
     private ResourceBundle rb = getRB();
+    private TablePager<Appointment> pager;
+    private YearMonth heatmapYearMonth = YearMonth.now(businessZone);
+
+    // Heatmap layout, in pixels
+    private static final double heatmapLabelWidth = 130;
+    private static final double heatmapRowHeight = 12;
+    private static final Color[] heatmapColors = new Color[11]; // From free (0%) to fully booked (100%)
+
+    static {
+        for (int i = 0; i < heatmapColors.length; i++) {
+            double booked = i / 10.0;
+            heatmapColors[i] = Color.rgb(248 - (int) (40 * booked), 255 - (int) (190 * booked), 244 - (int) (190 * booked));
+        }
+    }
 
     /**
      * Initializes the controller class by setting up the necessary UI components and loading initial data.
      * This includes populating combo boxes with contacts, displaying the count of tomorrow's appointments,
      * attempting to fetch and display an upcoming appointment for the user, and configuring table views for displaying
      * appointments.
-     * The method handles data fetching operations, configures cell factories for table columns to format date and time
-     * data appropriately, and sets up PropertyValueFactory for various table columns to bind them to the respective
-     * properties of Appointment objects.
+     * The queries run in parallel in the background so the view renders immediately; their results are applied
+     * to the UI together once all of them have finished. The appointments table is filled one page at a time
+     * as the user scrolls. The method also configures cell factories for table
+     * columns to format date and time data appropriately, and sets up PropertyValueFactory for various table
+     * columns to bind them to the respective properties of Appointment objects.
      * @param url The location used to resolve relative paths for the root object, or {@code null} if the location is not known.
      * @param resourceBundle The resources used to localize the root object, typically containing localized strings.
-     * @throws RuntimeException if there is an SQLException during fetching the upcoming appointment, encapsulating
-     * the original SQLException inside the RuntimeException.
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        // Load all contacts into the contactComboBox
-        contactComboBox.setItems(getAllContacts());
-
-        // Set the text for appointmentsTomorrow to the count of tomorrow's appointments
-        appointmentsTomorrow.setText(String.valueOf(getCountOfAppointmentsForNextDay()));
-
-        Appointment upcomingAppointment;
-        try {
-            // Attempt to fetch the upcoming appointment for the user based on their system's default timezone
-            upcomingAppointment = getUpcomingAppointmentForUser(ZoneId.systemDefault());
-        } catch (SQLException e) {
-            // Wrap and rethrow any SQL exceptions as unchecked exceptions
-            throw new RuntimeException(e);
-        }
+        // Configure table column factories and cell factories
+        setupTableColumnFactories();
 
-        // Display the fetched upcoming appointment if available
-        displayUpcomingAppointment(upcomingAppointment);
+        // Feed the appointmentsPerContact TableView page by page, from the first refresh on
+        pager = new TablePager<>(appointmentsPerContact,
+                (last, size) -> getAppointmentsPage(last == null ? 0 : last.getAppointmentID(), size), pageSize);
+    }
 
-        // Set items in the appointmentsPerContact TableView
-        appointmentsPerContact.setItems(getAllAppointments());
+    /**
+     * Loads the summary, the heatmap and the first page of appointments each time the view is shown.
+     * Any contact filter is cleared.
+     */
+    @Override
+    public void refresh() {
+        contactComboBox.getSelectionModel().clearSelection();
+        loadSummary();
+        loadHeatmap();
+        pager.reload();
+    }
 
-        // Configure table column factories and cell factories
-        setupTableColumnFactories();
+    /**
+     * Loads the contacts, the count of tomorrow's appointments and the upcoming appointment in parallel,
+     * and applies them to the UI together once all of them have finished.
+     */
+    private void loadSummary() {
+        // Start all queries at once
+        CompletableFuture<ObservableList<Contact>> contacts = AsyncDAO.getAllContacts();
+        CompletableFuture<Integer> countTomorrow = AsyncDAO.getCountOfAppointmentsForNextDay(getUserZone());
+        CompletableFuture<Appointment> upcoming = AsyncDAO.getUpcomingAppointmentForUser(getUserZone());
+
+        AsyncDAO.runOnFxThread(() -> {
+            // Load all contacts into the contactComboBox
+            contactComboBox.setItems(contacts.join());
+
+            // Set the text for appointmentsTomorrow to the count of tomorrow's appointments
+            appointmentsTomorrow.setText(String.valueOf(countTomorrow.join()));
+
+            // Display the fetched upcoming appointment if available
+            displayUpcomingAppointment(upcoming.join());
+        }, contacts, countTomorrow, upcoming);
+    }
+
+    /**
+     * Computes the availability heatmap of the selected month in the background and draws it. Each row is a
+     * contact and each column a day; the colour of a cell is the share of that day's ET business hours the
+     * contact is booked. The last row shows the share of business hours in which every contact is booked.
+     * The shares come from the bitmasks of the {@link AvailabilityIndex}, so no appointment is looked at.
+     */
+    private void loadHeatmap() {
+        YearMonth month = heatmapYearMonth;
+        heatmapMonth.setText(month.format(DateTimeFormatter.ofPattern("MMMM yyyy")));
+        CompletableFuture<ObservableList<Contact>> contacts = AsyncDAO.getAllContacts();
+        CompletableFuture<double[][]> load = contacts.thenCompose(list -> AsyncDAO.supplyAsync(() -> {
+            List<Integer> contactIDs = new ArrayList<>(list.size());
+            for (Contact contact : list) {
+                contactIDs.add(contact.getContactID());
+            }
+            try {
+                return AvailabilityIndex.businessHoursLoad(contactIDs, month);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }));
+        AsyncDAO.runOnFxThread(() -> {
+            if (month.equals(heatmapYearMonth)) { // Another month may have been picked while this one loaded
+                drawHeatmap(contacts.join(), load.join(), month);
+            }
+        }, contacts, load);
+    }
+
+    /**
+     * Draws the heatmap on the canvas, resizing it to fit one row per contact.
+     * @param contacts The contacts, in the order of the rows.
+     * @param load The booked share of each contact and day, with the all-booked row last.
+     * @param month The month shown.
+     */
+    private void drawHeatmap(List<Contact> contacts, double[][] load, YearMonth month) {
+        int days = month.lengthOfMonth();
+        double cellWidth = (availabilityHeatmap.getWidth() - heatmapLabelWidth) / days;
+        availabilityHeatmap.setHeight((load.length + 1) * heatmapRowHeight);
+        GraphicsContext gc = availabilityHeatmap.getGraphicsContext2D();
+        gc.clearRect(0, 0, availabilityHeatmap.getWidth(), availabilityHeatmap.getHeight());
+
+        gc.setFill(Color.BLACK);
+        for (int d = 0; d < days; d += 5) {
+            gc.fillText(String.valueOf(d + 1), heatmapLabelWidth + d * cellWidth, heatmapRowHeight - 2);
+        }
+        for (int row = 0; row < load.length; row++) {
+            double y = (row + 1) * heatmapRowHeight;
+            gc.setFill(Color.BLACK);
+            gc.fillText(row < contacts.size() ? contacts.get(row).toString() : "All booked", 0, y + heatmapRowHeight - 2);
+            for (int d = 0; d < days; d++) {
+                gc.setFill(heatmapColors[(int) Math.round(load[row][d] * 10)]);
+                gc.fillRect(heatmapLabelWidth + d * cellWidth, y, cellWidth - 1, heatmapRowHeight - 1);
+            }
+        }
+    }
+
+    /**
+     * Shows the availability heatmap of the previous month.
+     * @param actionEvent The event triggered by the button click.
+     */
+    public void onPreviousMonth(ActionEvent actionEvent) {
+        heatmapYearMonth = heatmapYearMonth.minusMonths(1);
+        loadHeatmap();
+    }
+
+    /**
+     * Shows the availability heatmap of the next month.
+     * @param actionEvent The event triggered by the button click.
+     */
+    public void onNextMonth(ActionEvent actionEvent) {
+        heatmapYearMonth = heatmapYearMonth.plusMonths(1);
+        loadHeatmap();
     }
 
     /**
@@ -112,8 +236,7 @@ public class Overview implements Initializable, InitializableWithData {
                 if (item == null || empty) {
                     setText(null);
                 } else {
-                    ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-                    setText(zdt.toLocalDateTime().toString());
+                    setText(toUserTime(item).toString());
                 }
             }
         });
@@ -127,8 +250,7 @@ public class Overview implements Initializable, InitializableWithData {
                 if (item == null || empty) {
                     setText(null);
                 } else {
-                    ZonedDateTime zdt = item.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-                    setText(zdt.toLocalDateTime().toString());
+                    setText(toUserTime(item).toString());
                 }
             }
         });
@@ -176,7 +298,7 @@ public class Overview implements Initializable, InitializableWithData {
         customersButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1);");
 
         // Load the Customers view into the main pane
-        mainBorderPane.setCenter(loadView("/view/Customers.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Customers.fxml", rb));
     }
 
     /**
@@ -190,7 +312,7 @@ public class Overview implements Initializable, InitializableWithData {
         appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 0.6);");
 
         // Load the Overview view into the main pane
-        mainBorderPane.setCenter(loadView("/view/Overview.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Overview.fxml", rb));
     }
 
     /**
@@ -205,7 +327,7 @@ public class Overview implements Initializable, InitializableWithData {
         appointmentsButton.setStyle("-fx-background-color: transparent; -fx-text-fill: rgba(255, 255, 255, 1);");
 
         // Load the Appointments view
-        mainBorderPane.setCenter(loadView("/view/Appointments.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/Appointments.fxml", rb));
     }
 
 
@@ -220,7 +342,8 @@ public class Overview implements Initializable, InitializableWithData {
 
         // If a contact is selected, update the table with appointments for that contact
         if (contact != null) {
-            appointmentsPerContact.setItems(getAppointmentsPerContact(contact));
+            CompletableFuture<ObservableList<Appointment>> appointments = AsyncDAO.getAppointmentsPerContact(contact);
+            AsyncDAO.runOnFxThread(() -> appointmentsPerContact.setItems(appointments.join()), appointments);
         }
     }
 
@@ -231,7 +354,7 @@ public class Overview implements Initializable, InitializableWithData {
      */
     public void onAddButton(MouseEvent mouseEvent) {
         // Load the Add Appointment form into the center of the main border pane
-        mainBorderPane.setCenter(loadView("/view/AddAppointmentForm.fxml", rb));
+        getMainBorderPane().setCenter(loadView("/view/AddAppointmentForm.fxml", rb));
     }
 
 }
@@ -0,0 +1,15 @@
+package controller;
+
+/**
+ * An interface for controllers whose views are kept alive and reused by the view cache instead of being
+ * reloaded from FXML each time they are shown. Only views whose controller implements this interface are cached,
+ * so forms that keep user input stay fresh on every visit.
+ */
+public interface Refreshable {
+    /**
+     * Loads the data shown by the view. Called on the JavaFX application thread each time the view is shown,
+     * the first time included; {@code initialize} only sets the view up, since a view may be parsed in the
+     * background before anyone has logged in.
+     */
+    void refresh();
+}
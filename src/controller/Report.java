@@ -1,13 +1,102 @@
 package controller;
 
+import DAO.AsyncDAO;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import utilities.LoginActivityLog;
+import utilities.LoginActivityLog.Attempt;
+import utilities.LoginActivityLog.HourlyCount;
 
 import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
-public class Report implements Initializable {
+/**
+ * Controller for the login activity report. It shows the failed login attempts of a user and the number
+ * of login attempts per hour within a date range, read from the login activity log through
+ * {@link LoginActivityLog}'s indexes.
+ */
+public class Report implements Initializable, Refreshable {
+    public TextField usernameField;
+    public DatePicker fromDatePicker;
+    public DatePicker toDatePicker;
+    public Button searchButton;
+    public Label failedAttemptsLabel;
+    public ListView<String> failedAttemptsList;
+    public TableView<HourlyCount> hourlyTable;
+    public TableColumn<HourlyCount, LocalDateTime> hourColumn;
+    public TableColumn<HourlyCount, Integer> attemptsColumn;
+    public TableColumn<HourlyCount, Integer> failuresColumn;
+
+    /**
+     * Initializes the report with the last seven days selected and binds the hourly table columns.
+     * @param url The location used to resolve relative paths for the root object, or null if the location is not known.
+     * @param resourceBundle The resources used to localize the root object, or null if the root object was not localized.
+     */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        fromDatePicker.setValue(LocalDate.now().minusDays(6));
+        toDatePicker.setValue(LocalDate.now());
+
+        hourColumn.setCellValueFactory(new PropertyValueFactory<>("hour"));
+        attemptsColumn.setCellValueFactory(new PropertyValueFactory<>("attempts"));
+        failuresColumn.setCellValueFactory(new PropertyValueFactory<>("failures"));
+    }
+
+    /**
+     * Runs the report each time the view is shown, so entries logged since it was last shown are included.
+     */
+    @Override
+    public void refresh() {
+        runReport();
+    }
+
+    /**
+     * Handles the click event of the search button by running the report for the entered user and dates.
+     * @param actionEvent The event triggered when the search button is pressed.
+     */
+    public void onSearchButton(ActionEvent actionEvent) {
+        runReport();
+    }
+
+    /**
+     * Queries the login activity log in the background and shows the results. The date range includes
+     * both the from and the to date.
+     */
+    private void runReport() {
+        LocalDate fromDate = fromDatePicker.getValue() != null ? fromDatePicker.getValue() : LocalDate.now();
+        LocalDate toDate = toDatePicker.getValue() != null ? toDatePicker.getValue() : fromDate;
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.plusDays(1).atStartOfDay();
+        String username = usernameField.getText() != null ? usernameField.getText().trim() : "";
+
+        CompletableFuture<List<HourlyCount>> hourly = AsyncDAO.supplyAsync(() -> LoginActivityLog.getAttemptsPerHour(from, to));
+        CompletableFuture<List<Attempt>> failed = AsyncDAO.supplyAsync(() ->
+                username.isEmpty() ? List.of() : LoginActivityLog.getFailedAttempts(username, from, to));
+
+        AsyncDAO.runOnFxThread(() -> {
+            hourlyTable.setItems(FXCollections.observableArrayList(hourly.join()));
 
+            List<Attempt> attempts = failed.join();
+            failedAttemptsList.getItems().clear();
+            for (Attempt attempt : attempts) {
+                failedAttemptsList.getItems().add(attempt.getTime().toString());
+            }
+            failedAttemptsLabel.setText(username.isEmpty()
+                    ? "Failed attempts (enter a username)"
+                    : "Failed attempts for " + username + ": " + attempts.size());
+        }, hourly, failed);
     }
 }
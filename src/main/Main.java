@@ -8,7 +8,11 @@ import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import utilities.DBConnection;
+import utilities.Log;
+import utilities.LoginAuditWriter;
+import utilities.LoginThrottle;
 import utilities.ManageState;
+import utilities.Startup;
 
 import java.io.IOException;
 import java.util.ResourceBundle;
@@ -21,6 +25,7 @@ import static utilities.ManageState.*;
  * serving as the entry point for the JavaFX application.
  */
 public class Main extends Application {
+    private static final Log log = Log.get(Main.class);
 
     private StackPane root = new StackPane();
     private static ResourceBundle resourceBundle;
@@ -44,7 +49,7 @@ public class Main extends Application {
 
         Node root = loadView("/view/LoginForm.fxml", resourceBundle);
         if (root == null) {
-            System.out.println("Failed to load the login form.");
+            log.warn("Failed to load the login form.");
             return;
         }
 
@@ -52,6 +57,10 @@ public class Main extends Application {
         primaryStage.setTitle(resourceBundle.getString("window.title"));
         primaryStage.setScene(scene);
         primaryStage.show();
+        Startup.milestone("login form shown");
+
+        // Open the pool and prepare the main screen while the user types their credentials
+        Startup.prewarm(resourceBundle);
     }
 
     /**
@@ -59,8 +68,10 @@ public class Main extends Application {
      * @param args the command line arguments
      */
     public static void main(String[] args) {
-        DBConnection.openConnection();
+        Startup.begin();
         launch(args);
+        log.info("Login throttle: " + LoginThrottle.getMetrics());
+        LoginAuditWriter.close();
         DBConnection.closeConnection();
     }
 
@@ -0,0 +1,122 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes how an appointment repeats: daily, weekly or monthly, until a given date or for a given number
+ * of occurrences. A recurrence is expanded into the start times of the individual appointments, which are
+ * then validated and saved like any other appointment.
+ */
+public class Recurrence {
+
+    /**
+     * How often an appointment repeats.
+     */
+    public enum Frequency {
+        DAILY("Daily"),
+        WEEKLY("Weekly"),
+        MONTHLY("Monthly");
+
+        private final String label; // The name shown in the forms
+
+        Frequency(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Finds the frequency shown under a label.
+         * @param label The label picked in a form.
+         * @return The frequency, or null if the label names none, e.g. for an appointment that does not repeat.
+         */
+        public static Frequency fromLabel(String label) {
+            for (Frequency frequency : values()) {
+                if (frequency.label.equals(label)) {
+                    return frequency;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Computes the n-th start of a series. Each start is computed from the first one, so monthly series
+         * starting on the 31st fall on the last day of shorter months and return to the 31st afterwards.
+         */
+        private ZonedDateTime nth(ZonedDateTime first, int n) {
+            switch (this) {
+                case DAILY:
+                    return first.plusDays(n);
+                case WEEKLY:
+                    return first.plusWeeks(n);
+                default:
+                    return first.plusMonths(n);
+            }
+        }
+    }
+
+    // Upper bound on the occurrences of one series, so a far-away end date cannot create an unbounded series.
+    private static final int maxOccurrences = Integer.getInteger("appointments.maxOccurrences", 500);
+
+    private final Frequency frequency;  // How often the appointment repeats
+    private final LocalDate until;      // Last day an occurrence may start on, or null
+    private final int count;            // Number of occurrences, or 0 when the series ends on a date
+
+    /**
+     * Constructs a recurrence ending on a date or after a number of occurrences, whichever comes first.
+     * @param frequency How often the appointment repeats.
+     * @param until The last day an occurrence may start on, or null to end after {@code count} occurrences.
+     * @param count The number of occurrences including the first, or 0 to end on {@code until}.
+     * @throws IllegalArgumentException if neither an end date nor a positive count is given.
+     */
+    public Recurrence(Frequency frequency, LocalDate until, int count) {
+        if (until == null && count <= 0) {
+            throw new IllegalArgumentException("A recurring appointment needs an end date or a number of occurrences.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("The number of occurrences cannot be negative.");
+        }
+        this.frequency = frequency;
+        this.until = until;
+        this.count = count;
+    }
+
+    /**
+     * Expands the series into the start times of its occurrences. The start times are computed in the time
+     * zone of {@code firstStart}, so the appointments keep their local time of day across daylight saving changes.
+     * @param firstStart The start of the first occurrence, in the user's time zone.
+     * @return The start of every occurrence in order, the first one included.
+     * @throws IllegalArgumentException if the series has more than {@code appointments.maxOccurrences} occurrences.
+     */
+    public List<ZonedDateTime> expand(ZonedDateTime firstStart) {
+        List<ZonedDateTime> starts = new ArrayList<>();
+        for (int n = 0; count == 0 || n < count; n++) {
+            ZonedDateTime start = frequency.nth(firstStart, n);
+            if (until != null && start.toLocalDate().isAfter(until)) {
+                break;
+            }
+            if (starts.size() == maxOccurrences) {
+                throw new IllegalArgumentException("A series cannot have more than " + maxOccurrences + " occurrences.");
+            }
+            starts.add(start);
+        }
+        return starts;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public LocalDate getUntil() {
+        return until;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
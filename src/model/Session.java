@@ -0,0 +1,106 @@
+package model;
+
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Represents the signed-in user for the lifetime of the application. A session is created once when
+ * the user logs in and holds what the rest of the application needs to know about them, so the user
+ * does not have to be looked up again to fill audit columns or to decide what they may do.
+ */
+public class Session {
+
+    /**
+     * The actions a user can be allowed to perform.
+     */
+    public enum Permission {
+        MANAGE_APPOINTMENTS,
+        MANAGE_CUSTOMERS,
+        VIEW_REPORTS
+    }
+
+    private final int userID;               // Unique identifier of the signed-in user
+    private final String userName;          // Username of the signed-in user, written to audit columns
+    private final ZoneId zoneId;            // Time zone times are shown in
+    private final Locale locale;            // Locale the interface is shown in
+    private final Set<Permission> permissions;
+
+    /**
+     * Constructs a new session for a user who has just logged in.
+     * @param userID The unique identifier of the user.
+     * @param userName The username of the user.
+     * @param zoneId The time zone of the user.
+     * @param locale The locale of the user.
+     * @param permissions The actions the user is allowed to perform.
+     */
+    public Session(int userID, String userName, ZoneId zoneId, Locale locale, Set<Permission> permissions) {
+        this.userID = userID;
+        this.userName = userName;
+        this.zoneId = zoneId;
+        this.locale = locale;
+        this.permissions = permissions.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(permissions));
+    }
+
+    /**
+     * Returns the unique identifier of the signed-in user.
+     * @return the user ID.
+     */
+    public int getUserID() {
+        return userID;
+    }
+
+    /**
+     * Returns the username of the signed-in user.
+     * @return the username.
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Returns the time zone of the signed-in user.
+     * @return the time zone.
+     */
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    /**
+     * Returns the locale of the signed-in user.
+     * @return the locale.
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Returns the actions the signed-in user is allowed to perform.
+     * @return an unmodifiable set of permissions.
+     */
+    public Set<Permission> getPermissions() {
+        return permissions;
+    }
+
+    /**
+     * Checks whether the signed-in user is allowed to perform an action.
+     * @param permission The action to check.
+     * @return true if the user has the permission, otherwise false.
+     */
+    public boolean hasPermission(Permission permission) {
+        return permissions.contains(permission);
+    }
+
+    /**
+     * Returns a string representation of this session, which is the username.
+     * @return the username.
+     */
+    @Override
+    public String toString() {
+        return userName;
+    }
+}
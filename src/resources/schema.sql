@@ -0,0 +1,71 @@
+-- The client_schedule schema, as used by the DAOs. Runs on MySQL and on H2 in MySQL mode.
+
+CREATE TABLE IF NOT EXISTS countries (
+    Country_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Country VARCHAR(50),
+    Create_Date DATETIME,
+    Created_By VARCHAR(50),
+    Last_Update TIMESTAMP,
+    Last_Updated_By VARCHAR(50)
+);
+
+CREATE TABLE IF NOT EXISTS first_level_divisions (
+    Division_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Division VARCHAR(50),
+    Create_Date DATETIME,
+    Created_By VARCHAR(50),
+    Last_Update TIMESTAMP,
+    Last_Updated_By VARCHAR(50),
+    Country_ID INT NOT NULL,
+    CONSTRAINT fk_country_id FOREIGN KEY (Country_ID) REFERENCES countries (Country_ID)
+);
+
+CREATE TABLE IF NOT EXISTS customers (
+    Customer_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Customer_Name VARCHAR(50),
+    Address VARCHAR(100),
+    Postal_Code VARCHAR(50),
+    Phone VARCHAR(50),
+    Create_Date DATETIME,
+    Created_By VARCHAR(50),
+    Last_Update TIMESTAMP,
+    Last_Updated_By VARCHAR(50),
+    Division_ID INT NOT NULL,
+    CONSTRAINT fk_division_id FOREIGN KEY (Division_ID) REFERENCES first_level_divisions (Division_ID)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    User_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    User_Name VARCHAR(50) UNIQUE,
+    Password TEXT,
+    Create_Date DATETIME,
+    Created_By VARCHAR(50),
+    Last_Update TIMESTAMP,
+    Last_Updated_By VARCHAR(50)
+);
+
+CREATE TABLE IF NOT EXISTS contacts (
+    Contact_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Contact_Name VARCHAR(50),
+    Email VARCHAR(50)
+);
+
+CREATE TABLE IF NOT EXISTS appointments (
+    Appointment_ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Title VARCHAR(50),
+    Description VARCHAR(50),
+    Location VARCHAR(50),
+    Type VARCHAR(50),
+    Start DATETIME,
+    End DATETIME,
+    Create_Date DATETIME,
+    Created_By VARCHAR(50),
+    Last_Update TIMESTAMP,
+    Last_Updated_By VARCHAR(50),
+    Customer_ID INT NOT NULL,
+    User_ID INT NOT NULL,
+    Contact_ID INT NOT NULL,
+    CONSTRAINT fk_customer_id FOREIGN KEY (Customer_ID) REFERENCES customers (Customer_ID),
+    CONSTRAINT fk_user_id FOREIGN KEY (User_ID) REFERENCES users (User_ID),
+    CONSTRAINT fk_contact_id FOREIGN KEY (Contact_ID) REFERENCES contacts (Contact_ID)
+);
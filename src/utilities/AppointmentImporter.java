@@ -0,0 +1,485 @@
+package utilities;
+
+import DAO.AppointmentDAO;
+import DAO.CustomerDAO;
+import DAO.ReferenceData;
+import model.Appointment;
+import model.Session;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports appointments from a CSV file. The file is streamed rather than read into memory:
+ * <ol>
+ *     <li>the calling thread reads blocks of {@code import.blockLines} lines (2000 by default) and hands each
+ *     block to a pool of {@code import.parseThreads} parser threads;</li>
+ *     <li>at most {@code import.maxBlocksInFlight} blocks are read ahead of validation, so a fast reader waits
+ *     for the parsers and the validator instead of filling the heap, whatever the size of the file;</li>
+ *     <li>parsed rows are validated in file order on the calling thread with
+ *     {@link ManageState#checkAppointment}, which checks overlaps with the saved appointments; each row is also
+ *     checked against the accepted rows of the batch not inserted yet, which the import keeps to itself, so rows
+ *     of the same file cannot overlap each other either;</li>
+ *     <li>accepted rows are inserted with {@link AppointmentDAO#insertAppointments} in batches of
+ *     {@code import.batchSize} rows (500 by default), one transaction per batch. A batch the database refuses is
+ *     split in halves and retried, so only the rows that fail on their own are rejected. If the database
+ *     cannot be reached, the import stops with an error instead.</li>
+ * </ol>
+ * Every rejected row is written to a CSV report with its line number, the reason and the original line.
+ * <p>
+ * The first line of the file is a header naming the columns {@code Title}, {@code Description},
+ * {@code Location}, {@code Type}, {@code Start}, {@code End}, {@code Customer_ID}, {@code User_ID} and
+ * {@code Contact_ID}, in any order. Start and end are written as {@code yyyy-MM-dd HH:mm} (seconds and a
+ * {@code T} separator are also accepted) in the time zone given to the import. Each record is on one line;
+ * quoted fields may contain commas and doubled quotes but not line breaks.
+ */
+public class AppointmentImporter {
+    private static final Log log = Log.get(AppointmentImporter.class);
+
+    private static final int blockLines = Integer.getInteger("import.blockLines", 2000);
+    private static final int batchSize = Integer.getInteger("import.batchSize", 500);
+    private static final int parseThreads = Integer.getInteger("import.parseThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int maxBlocksInFlight = Integer.getInteger("import.maxBlocksInFlight", parseThreads * 2);
+
+    private static final String[] columnNames =
+            {"Title", "Description", "Location", "Type", "Start", "End", "Customer_ID", "User_ID", "Contact_ID"};
+    private static final int maxTextLength = 50; // The VARCHAR(50) text columns of the appointments table
+
+    private static final DateTimeFormatter dateTimeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd['T'][' ']HH:mm[:ss]");
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class ImportResult {
+        private final long rowsRead;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedMillis;
+
+        private ImportResult(long rowsRead, long imported, long rejected, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return rowsRead + " rows read, " + imported + " imported, " + rejected + " rejected in " + elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * One data line of the file, parsed. Either {@code appointment} or {@code error} is set.
+     */
+    private static final class Row {
+        private final long lineNumber;
+        private final String line;
+        private Appointment appointment;
+        private ZonedDateTime start;
+        private ZonedDateTime end;
+        private String error;
+
+        private Row(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Imports the appointments of a CSV file.
+     * @param csv The file to import.
+     * @param rejectedReport The file the rejected rows are written to; it is replaced if it exists.
+     * @param zone The time zone of the start and end times in the file.
+     * @param session The session of the user importing the file, recorded as the creator of the appointments.
+     * @return The number of rows read, imported and rejected.
+     * @throws IOException if either file cannot be read or written, the header lacks a column, or the database
+     * cannot be reached while inserting.
+     */
+    public static ImportResult importFile(Path csv, Path rejectedReport, ZoneId zone, Session session) throws IOException {
+        long started = System.nanoTime();
+        ExecutorService parsers = Executors.newFixedThreadPool(parseThreads, r -> {
+            Thread t = new Thread(r, "csv-parser-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Validator validator = null;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter report = Files.newBufferedWriter(rejectedReport, StandardCharsets.UTF_8)) {
+            report.write("Line,Reason,Row");
+            report.newLine();
+
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("The file is empty: " + csv);
+            }
+            int[] columns = mapColumns(parseLine(header));
+            validator = new Validator(zone, session, report);
+
+            Deque<CompletableFuture<List<Row>>> inFlight = new ArrayDeque<>();
+            List<String> block = new ArrayList<>(blockLines);
+            long lineNumber = 1;
+            long blockStart = 2;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                block.add(line);
+                if (block.size() == blockLines) {
+                    inFlight.add(parseAsync(block, blockStart, columns, zone, parsers));
+                    block = new ArrayList<>(blockLines);
+                    blockStart = lineNumber + 1;
+                    // Backpressure: stop reading until the oldest block has been validated.
+                    while (inFlight.size() >= maxBlocksInFlight) {
+                        validator.accept(inFlight.poll().join());
+                    }
+                }
+            }
+            if (!block.isEmpty()) {
+                inFlight.add(parseAsync(block, blockStart, columns, zone, parsers));
+            }
+            while (!inFlight.isEmpty()) {
+                validator.accept(inFlight.poll().join());
+            }
+            validator.flush();
+
+            ImportResult result = new ImportResult(validator.rowsRead, validator.imported, validator.rejected,
+                    (System.nanoTime() - started) / 1_000_000);
+            log.info("Imported " + csv + ": " + result);
+            return result;
+        } finally {
+            parsers.shutdownNow();
+            if (validator != null) {
+                validator.discardPending();
+            }
+        }
+    }
+
+    private static CompletableFuture<List<Row>> parseAsync(List<String> lines, long firstLineNumber, int[] columns,
+                                                          ZoneId zone, ExecutorService parsers) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Row> rows = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (!line.isBlank()) {
+                    rows.add(parseRow(firstLineNumber + i, line, columns, zone));
+                }
+            }
+            return rows;
+        }, parsers);
+    }
+
+    /**
+     * Finds the position of each expected column in the header.
+     * @return The index in a record of each of {@link #columnNames}, in that order.
+     */
+    private static int[] mapColumns(List<String> header) throws IOException {
+        int[] columns = new int[columnNames.length];
+        for (int c = 0; c < columnNames.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(columnNames[c])) {
+                    columns[c] = i;
+                    break;
+                }
+            }
+            if (columns[c] == -1) {
+                throw new IOException("The header has no " + columnNames[c] + " column");
+            }
+        }
+        return columns;
+    }
+
+    private static Row parseRow(long lineNumber, String line, int[] columns, ZoneId zone) {
+        Row row = new Row(lineNumber, line);
+        List<String> fields = parseLine(line);
+        try {
+            String[] values = new String[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c] >= fields.size()) {
+                    row.error = "Missing " + columnNames[c];
+                    return row;
+                }
+                values[c] = fields.get(columns[c]).trim();
+            }
+            for (int c = 0; c < 4; c++) {
+                if (values[c].isEmpty()) {
+                    row.error = columnNames[c] + " is empty";
+                    return row;
+                }
+                if (values[c].length() > maxTextLength) {
+                    row.error = columnNames[c] + " is longer than " + maxTextLength + " characters";
+                    return row;
+                }
+            }
+            row.start = LocalDateTime.parse(values[4], dateTimeFormat).atZone(zone);
+            row.end = LocalDateTime.parse(values[5], dateTimeFormat).atZone(zone);
+            row.appointment = new Appointment(0, values[0], values[1], values[2], values[3],
+                    row.start.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+                    row.end.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+                    Integer.parseInt(values[6]), Integer.parseInt(values[7]), Integer.parseInt(values[8]));
+        } catch (DateTimeParseException e) {
+            row.error = "Invalid date/time '" + e.getParsedString() + "'";
+        } catch (NumberFormatException e) {
+            row.error = "Invalid ID: " + e.getMessage();
+        }
+        return row;
+    }
+
+    /**
+     * Splits one CSV record into fields. Fields may be quoted, with a doubled quote standing for a quote.
+     * @param line The record.
+     * @return The fields, unquoted.
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Validates parsed rows in file order, inserts the accepted ones in batches and reports the rejected ones.
+     * Only used by the importing thread.
+     */
+    private static final class Validator {
+        private final ZoneId zone;
+        private final Session session;
+        private final BufferedWriter report;
+        private final Set<Integer> customerIDs;
+        private final Set<Integer> userIDs;
+        private final Set<Integer> contactIDs;
+
+        private final List<Row> pending = new ArrayList<>(batchSize);
+        private final List<Appointment> batch = new ArrayList<>(batchSize);
+        // Start to end, in UTC, of each customer's accepted rows that are not inserted yet. They never overlap.
+        private final Map<Integer, TreeMap<LocalDateTime, LocalDateTime>> pendingTimes = new HashMap<>();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+
+        private Validator(ZoneId zone, Session session, BufferedWriter report) {
+            this.zone = zone;
+            this.session = session;
+            this.report = report;
+            this.customerIDs = new HashSet<>(CustomerDAO.getAllCustomerIDs());
+            this.userIDs = new HashSet<>(ReferenceData.getUserIDs());
+            this.contactIDs = new HashSet<>(ReferenceData.getContactIDs());
+        }
+
+        private void accept(List<Row> rows) throws IOException {
+            for (Row row : rows) {
+                rowsRead++;
+                String error = row.error != null ? row.error : check(row);
+                if (error != null) {
+                    reject(row, error);
+                    continue;
+                }
+
+                Appointment a = row.appointment;
+                pendingTimes.computeIfAbsent(a.getCustomerID(), id -> new TreeMap<>()).put(a.getStartDate(), a.getEndDate());
+                batch.add(a);
+                pending.add(row);
+                if (pending.size() >= batchSize) {
+                    flush();
+                }
+            }
+        }
+
+        private String check(Row row) {
+            Appointment a = row.appointment;
+            if (!customerIDs.contains(a.getCustomerID())) {
+                return "Unknown customer " + a.getCustomerID();
+            }
+            if (!userIDs.contains(a.getUserID())) {
+                return "Unknown user " + a.getUserID();
+            }
+            if (!contactIDs.contains(a.getContactID())) {
+                return "Unknown contact " + a.getContactID();
+            }
+            ManageState.ValidationError error = ManageState.checkAppointment(row.start, row.end, zone, a.getCustomerID(), -1);
+            if (error != null) {
+                return error.getMessage();
+            }
+            if (overlapsPending(a)) {
+                return "This appointment overlaps an earlier row of the file.";
+            }
+            return null;
+        }
+
+        /**
+         * Checks a row against the customer's accepted rows that are not inserted yet, which neither the
+         * database nor the appointment index has. Those rows do not overlap each other, so only the last one
+         * starting at or before the row and the first one starting after it can overlap it.
+         */
+        private boolean overlapsPending(Appointment a) {
+            TreeMap<LocalDateTime, LocalDateTime> times = pendingTimes.get(a.getCustomerID());
+            if (times == null) {
+                return false;
+            }
+            Map.Entry<LocalDateTime, LocalDateTime> before = times.floorEntry(a.getStartDate());
+            Map.Entry<LocalDateTime, LocalDateTime> after = times.higherEntry(a.getStartDate());
+            return (before != null && before.getValue().isAfter(a.getStartDate())) ||
+                    (after != null && after.getKey().isBefore(a.getEndDate()));
+        }
+
+        private void flush() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                insert(0, pending.size());
+            } finally {
+                discardPending();
+            }
+        }
+
+        /**
+         * Inserts the pending rows from {@code from} (inclusive) to {@code to} (exclusive) in one transaction.
+         * If the transaction fails, each half is inserted on its own, down to single rows, so only the rows the
+         * database refuses are rejected. If the database cannot be reached at all, the import stops instead.
+         * @throws IOException if the database cannot be reached, or the report cannot be written.
+         */
+        private void insert(int from, int to) throws IOException {
+            try {
+                imported += AppointmentDAO.insertAppointments(batch.subList(from, to), session).size();
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) {
+                    throw new IOException("The import stopped at line " + pending.get(from).lineNumber +
+                            " because the database could not be reached (" + e.getMessage() + "). " +
+                            imported + " appointments were imported before it stopped.", e);
+                }
+                if (to - from == 1) {
+                    reject(pending.get(from), "Database error: " + e.getMessage());
+                    return;
+                }
+                int middle = (from + to) >>> 1;
+                insert(from, middle);
+                insert(middle, to);
+            }
+        }
+
+        /**
+         * Forgets the rows of the batch once it has been inserted, or when the import stops early.
+         */
+        private void discardPending() {
+            pending.clear();
+            batch.clear();
+            pendingTimes.clear();
+        }
+
+        private void reject(Row row, String reason) throws IOException {
+            rejected++;
+            report.write(row.lineNumber + "," + quote(reason) + "," + quote(row.line));
+            report.newLine();
+        }
+    }
+
+    /**
+     * Tells a failure to reach the database, which no row can be blamed for, from a row the database refuses.
+     * Connection errors, SQL state class 08, and timeouts, including waiting for a pooled connection, count as
+     * failures to reach it.
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException || t instanceof SQLNonTransientConnectionException ||
+                    t instanceof SQLTimeoutException) {
+                return true;
+            }
+            if (t instanceof SQLException && ((SQLException) t).getSQLState() != null &&
+                    ((SQLException) t).getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Names the report of rejected rows for an imported file: {@code appointments.csv} is reported in
+     * {@code appointments.rejected.csv} next to it.
+     * @param csv The file being imported.
+     * @return The path of the report.
+     */
+    public static Path rejectedReportFor(Path csv) {
+        String name = csv.getFileName().toString();
+        int dot = name.toLowerCase(Locale.ROOT).endsWith(".csv") ? name.length() - 4 : name.length();
+        return csv.resolveSibling(name.substring(0, dot) + ".rejected.csv");
+    }
+}
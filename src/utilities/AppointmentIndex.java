@@ -0,0 +1,322 @@
+package utilities;
+
+import model.Appointment;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static DAO.AppointmentDAO.getCustomerBusyIntervals;
+import static DAO.AppointmentDAO.getCustomerIntervals;
+
+/**
+ * Keeps an in-memory index of every customer's appointment intervals (in UTC) so overlap checks do not
+ * have to fetch and scan the customer's whole appointment history on every save.
+ * A customer's appointments are loaded the first time they are checked, and the index is then kept
+ * up to date by {@link DAO.AppointmentDAO} whenever an appointment is created, edited or deleted.
+ * Other clients of the database are not seen by those hooks, so a customer is loaded again on its next
+ * check once it is older than {@code appointmentIndex.ttlMillis} (one minute by default). A load that
+ * fails is reported to the caller and nothing is cached. The query runs outside the index's lock, so
+ * the DAO hooks never wait for it.
+ * <p>
+ * Each customer's appointments are kept sorted by start time, together with the longest appointment
+ * duration seen. An appointment can only overlap {@code [start, end)} if it starts before {@code end}
+ * and after {@code start - longestDuration}, so a query only visits that slice of the sorted set:
+ * O(log n) to find it plus the few appointments inside it.
+ */
+public class AppointmentIndex {
+    private static final Log log = Log.get(AppointmentIndex.class);
+    private static final Comparator<Appointment> byStart =
+            Comparator.comparing(Appointment::getStartDate).thenComparingInt(Appointment::getAppointmentID);
+
+    private static final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("appointmentIndex.ttlMillis", 60_000L));
+    private static final int loadAttempts = 3;
+
+    private static final Map<Integer, CustomerIntervals> customers = new HashMap<>();
+    private static final Map<Integer, Appointment> appointmentsByID = new HashMap<>();
+    private static long writes; // Changes made through the DAO hooks, to detect writes racing a load
+
+    /**
+     * The sorted appointments of one customer.
+     */
+    private static class CustomerIntervals {
+        private final NavigableSet<Appointment> byStartDate = new TreeSet<>(byStart);
+        private Duration longestDuration = Duration.ZERO;
+        private final long loadedAtNanos = System.nanoTime();
+
+        private boolean isFresh() {
+            return System.nanoTime() - loadedAtNanos < ttlNanos;
+        }
+
+        private void add(Appointment appointment) {
+            byStartDate.add(appointment);
+            Duration duration = Duration.between(appointment.getStartDate(), appointment.getEndDate());
+            if (duration.compareTo(longestDuration) > 0) {
+                longestDuration = duration;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given interval overlaps any appointment of the customer.
+     * @param customerID The customer to check.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @param excludedAppointmentID An appointment to ignore, typically the one being edited, or -1.
+     * @return true if at least one appointment overlaps the interval, false otherwise.
+     * @throws SQLException if the customer's appointments have to be loaded and cannot be read.
+     */
+    public static boolean hasOverlap(int customerID, LocalDateTime startUTC, LocalDateTime endUTC, int excludedAppointmentID) throws SQLException {
+        return !findOverlapping(customerID, startUTC, endUTC, excludedAppointmentID, true).isEmpty();
+    }
+
+    /**
+     * Finds every appointment of the customer that overlaps the given interval.
+     * @param customerID The customer to check.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @param excludedAppointmentID An appointment to ignore, typically the one being edited, or -1.
+     * @return The overlapping appointments ordered by start time; empty if there are none.
+     * @throws SQLException if the customer's appointments have to be loaded and cannot be read.
+     */
+    public static List<Appointment> findOverlapping(int customerID, LocalDateTime startUTC, LocalDateTime endUTC, int excludedAppointmentID) throws SQLException {
+        return findOverlapping(customerID, startUTC, endUTC, excludedAppointmentID, false);
+    }
+
+    private static List<Appointment> findOverlapping(int customerID, LocalDateTime startUTC, LocalDateTime endUTC,
+                                                     int excludedAppointmentID, boolean firstOnly) throws SQLException {
+        CustomerIntervals intervals = load(customerID);
+        if (intervals == null) {
+            List<Appointment> overlapping = getCustomerBusyIntervals(customerID, startUTC, endUTC);
+            overlapping.removeIf(a -> a.getAppointmentID() == excludedAppointmentID);
+            return overlapping;
+        }
+        synchronized (AppointmentIndex.class) {
+            return findOverlapping(intervals, startUTC, endUTC, excludedAppointmentID, firstOnly);
+        }
+    }
+
+    private static List<Appointment> findOverlapping(CustomerIntervals intervals, LocalDateTime startUTC, LocalDateTime endUTC,
+                                                     int excludedAppointmentID, boolean firstOnly) {
+        List<Appointment> overlapping = new ArrayList<>();
+
+        // Only appointments starting in (start - longestDuration, end) can reach into [start, end).
+        Appointment from = new Appointment(Integer.MIN_VALUE, startUTC.minus(intervals.longestDuration));
+        Appointment to = new Appointment(Integer.MIN_VALUE, endUTC);
+        for (Appointment existing : intervals.byStartDate.subSet(from, false, to, false)) {
+            if (existing.getAppointmentID() != excludedAppointmentID &&
+                    startUTC.isBefore(existing.getEndDate()) &&
+                    endUTC.isAfter(existing.getStartDate())) {
+                overlapping.add(existing);
+                if (firstOnly) {
+                    break;
+                }
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Checks a whole series of intervals against the customer's appointments in one pass. The customer's
+     * appointments between the first and the last interval are walked once in start order, side by side with
+     * the intervals, instead of searching the index again for every interval.
+     * @param customerID The customer to check.
+     * @param intervals The intervals to check, in UTC, ordered by start time and not overlapping each other.
+     * @return The overlapping appointments of each interval that has any, keyed by the interval's position
+     * in {@code intervals}; empty if no interval overlaps.
+     * @throws SQLException if the customer's appointments have to be loaded and cannot be read.
+     */
+    public static Map<Integer, List<Appointment>> findOverlappingSeries(int customerID, List<Appointment> intervals) throws SQLException {
+        if (intervals.isEmpty()) {
+            return new TreeMap<>();
+        }
+        CustomerIntervals customer = load(customerID);
+        if (customer == null) {
+            return findOverlappingSeriesInDatabase(customerID, intervals);
+        }
+        synchronized (AppointmentIndex.class) {
+            return findOverlappingSeries(customer, intervals);
+        }
+    }
+
+    /**
+     * Checks a series like {@link #findOverlappingSeries(int, List)}, but against the database: the customer's
+     * appointments within the span of the series are read with one range query and walked the same way.
+     * @param customerID The customer to check.
+     * @param intervals The intervals to check, in UTC, ordered by start time and not overlapping each other.
+     * @return The overlapping appointments of each interval that has any, keyed by the interval's position.
+     * @throws SQLException if the appointments cannot be read.
+     */
+    static Map<Integer, List<Appointment>> findOverlappingSeriesInDatabase(int customerID, List<Appointment> intervals) throws SQLException {
+        if (intervals.isEmpty()) {
+            return new TreeMap<>();
+        }
+        List<Appointment> existing = getCustomerBusyIntervals(customerID,
+                intervals.get(0).getStartDate(), intervals.get(intervals.size() - 1).getEndDate());
+        Duration longest = Duration.ZERO;
+        for (Appointment appointment : existing) {
+            Duration length = Duration.between(appointment.getStartDate(), appointment.getEndDate());
+            if (length.compareTo(longest) > 0) {
+                longest = length;
+            }
+        }
+        return matchSeries(existing, longest, intervals);
+    }
+
+    private static Map<Integer, List<Appointment>> findOverlappingSeries(CustomerIntervals customer, List<Appointment> intervals) {
+        Duration longest = customer.longestDuration;
+        Appointment from = new Appointment(Integer.MIN_VALUE, intervals.get(0).getStartDate().minus(longest));
+        Appointment to = new Appointment(Integer.MIN_VALUE, intervals.get(intervals.size() - 1).getEndDate());
+        return matchSeries(new ArrayList<>(customer.byStartDate.subSet(from, false, to, false)), longest, intervals);
+    }
+
+    /**
+     * Walks appointments and a series of intervals side by side, both in start order.
+     * @param existing The appointments to check against, ordered by start time.
+     * @param longest The longest of the {@code existing} appointments, so the walk knows how far back one can reach.
+     * @param intervals The intervals to check, ordered by start time and not overlapping each other.
+     * @return The overlapping appointments of each interval that has any, keyed by the interval's position.
+     */
+    private static Map<Integer, List<Appointment>> matchSeries(List<Appointment> existing, Duration longest, List<Appointment> intervals) {
+        Map<Integer, List<Appointment>> overlapping = new TreeMap<>();
+        int first = 0; // The first existing appointment that can still reach the current interval
+        for (int i = 0; i < intervals.size(); i++) {
+            LocalDateTime start = intervals.get(i).getStartDate();
+            LocalDateTime end = intervals.get(i).getEndDate();
+            LocalDateTime reach = start.minus(longest);
+            while (first < existing.size() && !existing.get(first).getStartDate().isAfter(reach)) {
+                first++;
+            }
+            for (int j = first; j < existing.size() && existing.get(j).getStartDate().isBefore(end); j++) {
+                Appointment candidate = existing.get(j);
+                if (start.isBefore(candidate.getEndDate())) {
+                    overlapping.computeIfAbsent(i, k -> new ArrayList<>()).add(candidate);
+                }
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Adds or replaces an appointment in the index. Customers whose appointments have not been loaded yet
+     * are left alone; they will pick the appointment up when they are first loaded.
+     * @param appointment The appointment as stored in the database, with UTC start and end times.
+     */
+    public static synchronized void put(Appointment appointment) {
+        remove(appointment.getAppointmentID());
+        writes++;
+        if (appointment.getStartDate() == null || appointment.getEndDate() == null) {
+            return;
+        }
+        CustomerIntervals intervals = customers.get(appointment.getCustomerID());
+        if (intervals != null) {
+            intervals.add(appointment);
+            appointmentsByID.put(appointment.getAppointmentID(), appointment);
+        }
+    }
+
+    /**
+     * Replaces a customer's indexed appointments with the given ones, as if they had just been loaded from
+     * the database.
+     * @param customerID The customer whose appointments are given.
+     * @param appointments Every appointment of the customer, with UTC start and end times.
+     */
+    public static synchronized void putCustomer(int customerID, Collection<Appointment> appointments) {
+        install(customerID, appointments);
+    }
+
+    private static CustomerIntervals install(int customerID, Collection<Appointment> appointments) {
+        drop(customerID);
+        CustomerIntervals intervals = new CustomerIntervals();
+        for (Appointment appointment : appointments) {
+            if (appointment.getStartDate() != null && appointment.getEndDate() != null) {
+                intervals.add(appointment);
+                appointmentsByID.put(appointment.getAppointmentID(), appointment);
+            }
+        }
+        customers.put(customerID, intervals);
+        return intervals;
+    }
+
+    /**
+     * Removes an appointment from the index.
+     * @param appointmentID The ID of the deleted appointment.
+     */
+    public static synchronized void remove(int appointmentID) {
+        writes++;
+        Appointment existing = appointmentsByID.remove(appointmentID);
+        if (existing != null) {
+            CustomerIntervals intervals = customers.get(existing.getCustomerID());
+            if (intervals != null) {
+                intervals.byStartDate.remove(existing);
+            }
+        }
+    }
+
+    /**
+     * Removes every appointment of a customer from the index.
+     * @param customerID The customer whose appointments were deleted.
+     */
+    public static synchronized void removeCustomer(int customerID) {
+        writes++;
+        drop(customerID);
+    }
+
+    private static void drop(int customerID) {
+        CustomerIntervals intervals = customers.remove(customerID);
+        if (intervals != null) {
+            for (Appointment appointment : intervals.byStartDate) {
+                appointmentsByID.remove(appointment.getAppointmentID());
+            }
+        }
+    }
+
+    /**
+     * Drops the whole index; customers are reloaded from the database the next time they are checked.
+     */
+    public static synchronized void invalidate() {
+        customers.clear();
+        appointmentsByID.clear();
+    }
+
+    /**
+     * Returns the indexed appointments of a customer, loading them from the database if they are missing or
+     * older than the TTL. The query runs without holding the index's lock. If an appointment is written
+     * through the DAO hooks while the query runs, the result may predate that write, so the load is repeated.
+     * Should writes keep racing it, nothing is installed and the caller checks against the database instead,
+     * rather than trusting a result that may be stale; the next check loads the customer again.
+     * @param customerID The customer to load.
+     * @return The customer's intervals, or null if writes kept racing the load.
+     * @throws SQLException if the customer's appointments cannot be read; nothing is cached then.
+     */
+    private static CustomerIntervals load(int customerID) throws SQLException {
+        for (int attempt = 1; attempt <= loadAttempts; attempt++) {
+            long writesBefore;
+            synchronized (AppointmentIndex.class) {
+                CustomerIntervals cached = customers.get(customerID);
+                if (cached != null && cached.isFresh()) {
+                    return cached;
+                }
+                writesBefore = writes;
+            }
+            List<Appointment> loaded = getCustomerIntervals(customerID);
+            synchronized (AppointmentIndex.class) {
+                if (writes == writesBefore) {
+                    return install(customerID, loaded);
+                }
+            }
+        }
+        log.debug(() -> "Writes kept racing the load of customer " + customerID + "; checking against the database");
+        return null;
+    }
+}
@@ -0,0 +1,367 @@
+package utilities;
+
+import model.Appointment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static DAO.AppointmentDAO.getAppointmentIntervals;
+import static utilities.ManageState.businessEnd;
+import static utilities.ManageState.businessStart;
+import static utilities.ManageState.businessZone;
+
+/**
+ * Keeps every contact's and customer's booked time as bitmasks of 15-minute slots, so availability questions
+ * are answered with bitwise operations instead of walking appointments. A day is a {@link DayMask} of 96 slots
+ * held in two longs; days are UTC dates, so every day has exactly 96 slots whatever the time zone.
+ * <p>
+ * Slots are coarse: an appointment marks every slot it touches, so a 10:05 to 10:20 appointment marks the
+ * 10:00 and 10:15 slots. The masks answer "is anyone free around then" questions, such as the availability
+ * heatmap; exact validation stays with {@link AppointmentIndex}.
+ * <p>
+ * Masks are built one UTC month at a time from the {@code appointments} rows the first time the month is
+ * asked for, and are then kept up to date by {@link DAO.AppointmentDAO} whenever an appointment is created,
+ * edited or deleted.
+ */
+public class AvailabilityIndex {
+    public static final int slotMinutes = 15;
+    public static final int slotsPerDay = 24 * 60 / slotMinutes;
+
+    private static final Map<Integer, Map<LocalDate, DayEntry>> contacts = new HashMap<>();
+    private static final Map<Integer, Map<LocalDate, DayEntry>> customers = new HashMap<>();
+    private static final Map<Integer, Appointment> placed = new HashMap<>();
+    private static final Set<YearMonth> loadedMonths = new HashSet<>();
+    private static final int loadAttempts = 3;
+    private static long writes; // Changes made through the DAO hooks, to detect writes racing a load
+
+    /**
+     * The booked slots of one day: bit {@code n} is the slot starting {@code n * 15} minutes after midnight UTC.
+     * Slots 0 to 63 are in {@code low} and slots 64 to 95 in the low half of {@code high}.
+     */
+    public static final class DayMask {
+        public static final DayMask EMPTY = new DayMask(0L, 0L);
+
+        private final long low;
+        private final long high;
+
+        private DayMask(long low, long high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        /**
+         * Creates a mask of consecutive slots.
+         * @param fromSlot The first slot, from 0.
+         * @param toSlot The slot after the last one, up to 96.
+         * @return The mask with the slots {@code [fromSlot, toSlot)} set.
+         */
+        public static DayMask range(int fromSlot, int toSlot) {
+            return new DayMask(bits(Math.min(fromSlot, 64), Math.min(toSlot, 64)),
+                    bits(Math.max(fromSlot, 64) - 64, Math.max(toSlot, 64) - 64));
+        }
+
+        private static long bits(int from, int to) {
+            if (from >= to) {
+                return 0L;
+            }
+            long upTo = to == 64 ? -1L : (1L << to) - 1;
+            return upTo & -(1L << from);
+        }
+
+        public DayMask or(DayMask other) {
+            return new DayMask(low | other.low, high | other.high);
+        }
+
+        public DayMask and(DayMask other) {
+            return new DayMask(low & other.low, high & other.high);
+        }
+
+        public boolean isEmpty() {
+            return low == 0 && high == 0;
+        }
+
+        /**
+         * Counts the set slots.
+         * @return The number of booked slots.
+         */
+        public int count() {
+            return Long.bitCount(low) + Long.bitCount(high);
+        }
+    }
+
+    /**
+     * The slots booked by each appointment of one contact or customer on one day, and their union.
+     * Keeping each appointment's slots lets a deletion clear exactly its own bits when appointments share a slot.
+     */
+    private static final class DayEntry {
+        private final Map<Integer, DayMask> byAppointment = new HashMap<>(4);
+        private DayMask union = DayMask.EMPTY;
+
+        private void add(int appointmentID, DayMask mask) {
+            byAppointment.put(appointmentID, mask);
+            union = union.or(mask);
+        }
+
+        private void remove(int appointmentID) {
+            if (byAppointment.remove(appointmentID) != null) {
+                DayMask rebuilt = DayMask.EMPTY;
+                for (DayMask mask : byAppointment.values()) {
+                    rebuilt = rebuilt.or(mask);
+                }
+                union = rebuilt;
+            }
+        }
+    }
+
+    /**
+     * Splits an interval into the slots it touches on each UTC day.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @return The slots of each day the interval touches, in date order.
+     */
+    public static Map<LocalDate, DayMask> slotsOf(LocalDateTime startUTC, LocalDateTime endUTC) {
+        Map<LocalDate, DayMask> days = new LinkedHashMap<>();
+        LocalDate day = startUTC.toLocalDate();
+        while (endUTC.isAfter(day.atStartOfDay())) {
+            LocalDateTime dayStart = day.atStartOfDay();
+            int from = startUTC.isAfter(dayStart) ? slotOf(startUTC, false) : 0;
+            int to = endUTC.isBefore(dayStart.plusDays(1)) ? slotOf(endUTC, true) : slotsPerDay;
+            if (from < to) {
+                days.put(day, DayMask.range(from, to));
+            }
+            day = day.plusDays(1);
+        }
+        return days;
+    }
+
+    private static int slotOf(LocalDateTime time, boolean roundUp) {
+        int seconds = time.toLocalTime().toSecondOfDay();
+        int slotSeconds = slotMinutes * 60;
+        return roundUp ? (seconds + slotSeconds - 1) / slotSeconds : seconds / slotSeconds;
+    }
+
+    /**
+     * Gives the 08:00 to 22:00 ET business hours of a date as slots of the UTC days they fall on. The window
+     * is computed from the ET date itself, so it moves by an hour in UTC across daylight saving changes.
+     * @param businessDay The date in America/New_York.
+     * @return The business-hour slots on each UTC day.
+     */
+    public static Map<LocalDate, DayMask> businessHours(LocalDate businessDay) {
+        return slotsOf(businessDay.atTime(businessStart).atZone(businessZone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+                businessDay.atTime(businessEnd).atZone(businessZone).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime());
+    }
+
+    /**
+     * Loads the masks of every UTC month touched by the given days that has not been loaded yet. Each month is
+     * queried without holding the index's lock, so the DAO hooks never wait for it. If an appointment is
+     * written through the hooks while the query runs, the result may predate that write, so the query is
+     * repeated; the last attempt holds the lock while it reads.
+     * @param firstDay The first UTC day needed.
+     * @param lastDay The last UTC day needed.
+     * @throws SQLException if a month cannot be read; it is read again on the next call.
+     */
+    public static void ensureLoaded(LocalDate firstDay, LocalDate lastDay) throws SQLException {
+        for (YearMonth month = YearMonth.from(firstDay); !month.isAfter(YearMonth.from(lastDay)); month = month.plusMonths(1)) {
+            load(month);
+        }
+    }
+
+    private static void load(YearMonth month) throws SQLException {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        for (int attempt = 1; attempt < loadAttempts; attempt++) {
+            long writesBefore;
+            synchronized (AvailabilityIndex.class) {
+                if (loadedMonths.contains(month)) {
+                    return;
+                }
+                writesBefore = writes;
+            }
+            List<Appointment> appointments = getAppointmentIntervals(from, to);
+            synchronized (AvailabilityIndex.class) {
+                if (writes == writesBefore) {
+                    install(month, appointments);
+                    return;
+                }
+            }
+        }
+        synchronized (AvailabilityIndex.class) {
+            if (!loadedMonths.contains(month)) {
+                install(month, getAppointmentIntervals(from, to));
+            }
+        }
+    }
+
+    private static void install(YearMonth month, List<Appointment> appointments) {
+        if (loadedMonths.add(month)) {
+            for (Appointment appointment : appointments) {
+                place(appointment);
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces an appointment's slots. Days in months that have not been loaded yet are left alone;
+     * they pick the appointment up when they are first loaded.
+     * @param appointment The appointment as stored in the database, with UTC start and end times.
+     */
+    public static synchronized void put(Appointment appointment) {
+        remove(appointment.getAppointmentID());
+        if (appointment.getStartDate() == null || appointment.getEndDate() == null) {
+            return;
+        }
+        place(appointment);
+    }
+
+    private static void place(Appointment appointment) {
+        boolean placedAny = false;
+        for (Map.Entry<LocalDate, DayMask> day : slotsOf(appointment.getStartDate(), appointment.getEndDate()).entrySet()) {
+            if (!loadedMonths.contains(YearMonth.from(day.getKey()))) {
+                continue;
+            }
+            entry(contacts, appointment.getContactID(), day.getKey()).add(appointment.getAppointmentID(), day.getValue());
+            entry(customers, appointment.getCustomerID(), day.getKey()).add(appointment.getAppointmentID(), day.getValue());
+            placedAny = true;
+        }
+        if (placedAny) {
+            placed.put(appointment.getAppointmentID(), appointment);
+        }
+    }
+
+    private static DayEntry entry(Map<Integer, Map<LocalDate, DayEntry>> owners, int ownerID, LocalDate day) {
+        return owners.computeIfAbsent(ownerID, id -> new HashMap<>()).computeIfAbsent(day, d -> new DayEntry());
+    }
+
+    /**
+     * Clears the slots of a deleted appointment.
+     * @param appointmentID The ID of the deleted appointment.
+     */
+    public static synchronized void remove(int appointmentID) {
+        writes++;
+        Appointment existing = placed.remove(appointmentID);
+        if (existing == null) {
+            return;
+        }
+        for (LocalDate day : slotsOf(existing.getStartDate(), existing.getEndDate()).keySet()) {
+            clear(contacts, existing.getContactID(), day, appointmentID);
+            clear(customers, existing.getCustomerID(), day, appointmentID);
+        }
+    }
+
+    private static void clear(Map<Integer, Map<LocalDate, DayEntry>> owners, int ownerID, LocalDate day, int appointmentID) {
+        Map<LocalDate, DayEntry> days = owners.get(ownerID);
+        DayEntry entry = days != null ? days.get(day) : null;
+        if (entry != null) {
+            entry.remove(appointmentID);
+            if (entry.byAppointment.isEmpty()) {
+                days.remove(day);
+            }
+        }
+    }
+
+    /**
+     * Clears the slots of every appointment of a customer.
+     * @param customerID The customer whose appointments were deleted.
+     */
+    public static synchronized void removeCustomer(int customerID) {
+        writes++;
+        List<Integer> appointmentIDs = new ArrayList<>();
+        for (Appointment appointment : placed.values()) {
+            if (appointment.getCustomerID() == customerID) {
+                appointmentIDs.add(appointment.getAppointmentID());
+            }
+        }
+        for (int appointmentID : appointmentIDs) {
+            remove(appointmentID);
+        }
+        customers.remove(customerID);
+    }
+
+    /**
+     * Drops every mask; months are reloaded from the database the next time they are asked for.
+     */
+    public static synchronized void invalidate() {
+        writes++;
+        contacts.clear();
+        customers.clear();
+        placed.clear();
+        loadedMonths.clear();
+    }
+
+    private static DayMask union(Map<Integer, Map<LocalDate, DayEntry>> owners, int ownerID, LocalDate day) {
+        Map<LocalDate, DayEntry> days = owners.get(ownerID);
+        DayEntry entry = days != null ? days.get(day) : null;
+        return entry != null ? entry.union : DayMask.EMPTY;
+    }
+
+    /**
+     * Folds the days of several contacts with AND: a slot is set only if every one of them is booked.
+     * @param contactIDs The contacts.
+     * @param day The UTC day, which must have been loaded with {@link #ensureLoaded}.
+     * @return The slots in which no contact is free; every slot if {@code contactIDs} is empty.
+     */
+    public static synchronized DayMask allBusy(Collection<Integer> contactIDs, LocalDate day) {
+        DayMask folded = DayMask.range(0, slotsPerDay);
+        for (int contactID : contactIDs) {
+            folded = folded.and(union(contacts, contactID, day));
+            if (folded.isEmpty()) {
+                break;
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Builds an availability heatmap for a month: for each contact and each day, the share of the day's ET
+     * business hours that is booked. A last row gives, for each day, the share of business hours in which every
+     * contact is booked. Each cell is a handful of AND and bit count operations on the day masks.
+     * @param contactIDs The contacts, one row each, in order.
+     * @param month The month, in ET business days.
+     * @return {@code contactIDs.size() + 1} rows of one value from 0 to 1 per day of the month.
+     * @throws SQLException if the appointments of the month cannot be read.
+     */
+    public static double[][] businessHoursLoad(List<Integer> contactIDs, YearMonth month) throws SQLException {
+        int days = month.lengthOfMonth();
+        List<Map<LocalDate, DayMask>> windows = new ArrayList<>(days);
+        for (int d = 1; d <= days; d++) {
+            windows.add(businessHours(month.atDay(d)));
+        }
+        ensureLoaded(month.atDay(1), month.atEndOfMonth().plusDays(1));
+        synchronized (AvailabilityIndex.class) {
+            return businessHoursLoad(contactIDs, days, windows);
+        }
+    }
+
+    private static double[][] businessHoursLoad(List<Integer> contactIDs, int days, List<Map<LocalDate, DayMask>> windows) {
+        double[][] load = new double[contactIDs.size() + 1][days];
+        for (int d = 0; d < days; d++) {
+            Map<LocalDate, DayMask> window = windows.get(d);
+            int windowSlots = 0;
+            int allBusySlots = 0;
+            for (Map.Entry<LocalDate, DayMask> part : window.entrySet()) {
+                windowSlots += part.getValue().count();
+                allBusySlots += allBusy(contactIDs, part.getKey()).and(part.getValue()).count();
+            }
+            for (int c = 0; c < contactIDs.size(); c++) {
+                int busySlots = 0;
+                for (Map.Entry<LocalDate, DayMask> part : window.entrySet()) {
+                    busySlots += union(contacts, contactIDs.get(c), part.getKey()).and(part.getValue()).count();
+                }
+                load[c][d] = (double) busySlots / windowSlots;
+            }
+            load[contactIDs.size()][d] = contactIDs.isEmpty() ? 0 : (double) allBusySlots / windowSlots;
+        }
+        return load;
+    }
+}
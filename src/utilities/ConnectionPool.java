@@ -0,0 +1,612 @@
+package utilities;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of JDBC connections.
+ * Connections handed out by {@link #borrow()} are proxies: calling {@code close()} on them returns the
+ * physical connection to the pool instead of closing the socket. The pool keeps at least {@code minSize}
+ * connections open, never opens more than {@code maxSize}, closes connections that stay idle for too long,
+ * and only validates a connection with a server round-trip when it has been idle for a while.
+ * A background task also reports connections that have been borrowed for longer than the leak threshold.
+ * <p>
+ * Each pooled connection also keeps an LRU cache of prepared statements keyed by SQL text. Calling
+ * {@code prepareStatement(sql)} on a pooled connection reuses the cached statement when one is free,
+ * and closing the returned statement only closes its result set and gives the statement back to the cache.
+ */
+public class ConnectionPool {
+    private static final Log log = Log.get(ConnectionPool.class);
+
+    private final String jdbcUrl;
+    private final String userName;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final long leakThresholdMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder returnCount = new LongAdder();
+    private final LongAdder holdNanos = new LongAdder();
+    private final AtomicLong maxHoldNanos = new AtomicLong();
+    private final LongAdder validations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    /**
+     * Creates a new pool and opens the minimum number of connections.
+     * @param jdbcUrl The JDBC URL of the database.
+     * @param userName The database user.
+     * @param password The database password.
+     * @param minSize The number of connections the pool keeps open even when idle.
+     * @param maxSize The maximum number of connections that can be open at the same time.
+     * @param idleTimeoutMillis How long a connection may stay idle before it is closed (above {@code minSize}).
+     * @param validateAfterIdleMillis How long a connection may stay idle before it is validated on borrow.
+     * @param leakThresholdMillis How long a connection may be borrowed before it is reported as a leak, 0 to disable.
+     * @param borrowTimeoutMillis How long {@link #borrow()} waits for a free connection before failing.
+     * @param statementCacheSize The number of prepared statements cached per connection, 0 to disable.
+     */
+    public ConnectionPool(String jdbcUrl, String userName, String password, int minSize, int maxSize,
+                          long idleTimeoutMillis, long validateAfterIdleMillis, long leakThresholdMillis,
+                          long borrowTimeoutMillis, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.userName = userName;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        for (int i = 0; i < minSize; i++) {
+            try {
+                idle.offerFirst(openPhysical());
+            } catch (SQLException e) {
+                log.error("Could not open the initial pooled connections", e);
+                break;
+            }
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30_000));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available and the
+     * pool is below its maximum size. The returned connection must be closed to give it back to the pool.
+     * @return A pooled connection.
+     * @throws SQLException if the pool is closed, no connection becomes available in time, or a new
+     *                      connection cannot be opened.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long startNanos = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = takeIdleOrOpen();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - startNanos;
+        borrowCount.increment();
+        borrowWaitNanos.add(waited);
+        maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+
+        pooled.borrowedAtNanos = System.nanoTime();
+        pooled.borrowSite = leakThresholdMillis > 0 ? new Exception("Connection borrowed here") : null;
+        pooled.leakReported = false;
+        borrowed.add(pooled);
+        return pooled.newHandle();
+    }
+
+    /**
+     * Takes the most recently used idle connection, validating it first if it has been idle long enough,
+     * or opens a new physical connection when none is idle.
+     * @return A connection ready to be handed out.
+     * @throws SQLException if a new connection cannot be opened.
+     */
+    private PooledConnection takeIdleOrOpen() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.returnedAtNanos);
+            if (idleMillis < validateAfterIdleMillis) {
+                return pooled;
+            }
+            validations.increment();
+            if (isUsable(pooled.physical)) {
+                return pooled;
+            }
+            closePhysical(pooled);
+        }
+        return openPhysical();
+    }
+
+    /**
+     * Gives a connection back to the pool. Connections that were left in a transaction or are already
+     * broken are closed instead of being reused.
+     * @param pooled The connection being returned.
+     */
+    private void giveBack(PooledConnection pooled) {
+        long held = System.nanoTime() - pooled.borrowedAtNanos;
+        returnCount.increment();
+        holdNanos.add(held);
+        maxHoldNanos.accumulateAndGet(held, Math::max);
+        borrowed.remove(pooled);
+        pooled.borrowSite = null;
+        pooled.releaseStatements();
+
+        boolean reusable = !closed;
+        try {
+            if (reusable && pooled.physical.isClosed()) {
+                reusable = false;
+            }
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pooled.returnedAtNanos = System.nanoTime();
+            idle.offerFirst(pooled);
+        } else {
+            closePhysical(pooled);
+        }
+        permits.release();
+    }
+
+    /**
+     * Periodic maintenance: closes connections idle for longer than the idle timeout while keeping the
+     * minimum size, and reports connections borrowed for longer than the leak threshold.
+     */
+    private void housekeep() {
+        long now = System.nanoTime();
+
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooled = it.next();
+            if (TimeUnit.NANOSECONDS.toMillis(now - pooled.returnedAtNanos) >= idleTimeoutMillis && idle.remove(pooled)) {
+                evictions.increment();
+                closePhysical(pooled);
+            }
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                Exception site = pooled.borrowSite;
+                if (!pooled.leakReported && site != null
+                        && TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAtNanos) >= leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leaksDetected.increment();
+                    log.warn("Possible connection leak: connection held for more than " + leakThresholdMillis + " ms.", site);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a new physical connection to the database.
+     * @return The new pooled connection wrapper.
+     * @throws SQLException if the connection cannot be opened.
+     */
+    private PooledConnection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(jdbcUrl, userName, password);
+        totalConnections.incrementAndGet();
+        PooledConnection pooled = new PooledConnection(physical);
+        pooled.returnedAtNanos = System.nanoTime();
+        return pooled;
+    }
+
+    /**
+     * Closes the physical connection behind a pooled connection, ignoring errors.
+     * @param pooled The connection to close.
+     */
+    private void closePhysical(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // already broken, nothing to do
+        }
+    }
+
+    /**
+     * Checks whether a connection is still open and answering.
+     * @param connection The connection to check.
+     * @return true if the connection can be used, false otherwise.
+     */
+    private static boolean isUsable(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes the pool and every idle connection. Connections still borrowed are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closePhysical(pooled);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool's borrow and return statistics.
+     * @return The current pool metrics.
+     */
+    public Metrics getMetrics() {
+        return new Metrics(totalConnections.get(), idle.size(), borrowed.size(),
+                borrowCount.sum(), borrowWaitNanos.sum(), maxBorrowWaitNanos.get(),
+                returnCount.sum(), holdNanos.sum(), maxHoldNanos.get(),
+                validations.sum(), evictions.sum(), leaksDetected.sum(),
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    /**
+     * A physical connection owned by the pool, together with its bookkeeping.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private volatile long borrowedAtNanos;
+        private volatile long returnedAtNanos;
+        private volatile Exception borrowSite;
+        private volatile boolean leakReported;
+        private final Map<String, CachedStatement> statementCache;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize || eldest.getValue().inUse) {
+                        return false;
+                    }
+                    eldest.getValue().closePhysical();
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Returns a prepared statement for the given SQL, reusing a cached one if it is not already in use.
+         * @param sql The SQL text of the statement.
+         * @return A statement proxy whose {@code close()} gives the statement back to the cache.
+         * @throws SQLException if the statement cannot be prepared.
+         */
+        private PreparedStatement prepareCached(String sql) throws SQLException {
+            synchronized (statementCache) {
+                CachedStatement cached = statementCache.get(sql);
+                if (cached != null && !cached.inUse && cached.physical.isClosed()) {
+                    statementCache.remove(sql);
+                    cached = null;
+                }
+                if (cached != null && !cached.inUse) {
+                    statementCacheHits.increment();
+                    cached.inUse = true;
+                    return cached.newHandle();
+                }
+                statementCacheMisses.increment();
+                PreparedStatement statement = physical.prepareStatement(sql);
+                if (cached != null) {
+                    // The cached statement is busy, so this one is used once and closed normally.
+                    return statement;
+                }
+                cached = new CachedStatement(statement);
+                cached.inUse = true;
+                statementCache.put(sql, cached);
+                return cached.newHandle();
+            }
+        }
+
+        /**
+         * Gives back every cached statement the last borrower did not close.
+         */
+        private void releaseStatements() {
+            synchronized (statementCache) {
+                for (CachedStatement cached : statementCache.values()) {
+                    if (cached.inUse) {
+                        cached.release();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Creates the proxy handed out to callers for one borrow. Closing the proxy returns the connection
+         * to the pool exactly once; any later call on the same proxy fails.
+         * @return A connection proxy for this borrow.
+         */
+        private Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean released;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if (name.equals("close")) {
+                        if (!released) {
+                            released = true;
+                            giveBack(PooledConnection.this);
+                        }
+                        return null;
+                    }
+                    if (name.equals("isClosed")) {
+                        return released || physical.isClosed();
+                    }
+                    if (released) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    if (statementCacheSize > 0 && name.equals("prepareStatement") && args.length == 1) {
+                        return prepareCached((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+    }
+
+    /**
+     * A prepared statement kept open in a connection's statement cache.
+     */
+    private static final class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean inUse;
+        private ResultSet openResultSet;
+
+        private CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Creates the proxy handed out for one use of the statement. Closing the proxy closes the result set
+         * it produced and marks the statement free instead of closing it.
+         * @return A statement proxy for this use.
+         */
+        private PreparedStatement newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean released;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if (name.equals("close")) {
+                        if (!released) {
+                            released = true;
+                            release();
+                        }
+                        return null;
+                    }
+                    if (name.equals("isClosed")) {
+                        return released || physical.isClosed();
+                    }
+                    if (released) {
+                        throw new SQLException("Statement has already been closed.");
+                    }
+                    try {
+                        Object result = method.invoke(physical, args);
+                        if (result instanceof ResultSet) {
+                            openResultSet = (ResultSet) result;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            };
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handler);
+        }
+
+        /**
+         * Resets the statement so the next user starts clean, and marks it free.
+         */
+        private void release() {
+            try {
+                if (openResultSet != null) {
+                    openResultSet.close();
+                }
+                physical.clearParameters();
+                physical.clearBatch();
+            } catch (SQLException e) {
+                closePhysical();
+            }
+            openResultSet = null;
+            inUse = false;
+        }
+
+        /**
+         * Closes the underlying statement, ignoring errors.
+         */
+        private void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // already closed with its connection
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the pool's state and timings. Times are reported in nanoseconds.
+     */
+    public static final class Metrics {
+        private final int totalConnections;
+        private final int idleConnections;
+        private final int activeConnections;
+        private final long borrowCount;
+        private final long totalBorrowWaitNanos;
+        private final long maxBorrowWaitNanos;
+        private final long returnCount;
+        private final long totalHoldNanos;
+        private final long maxHoldNanos;
+        private final long validations;
+        private final long evictions;
+        private final long leaksDetected;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+
+        private Metrics(int totalConnections, int idleConnections, int activeConnections,
+                        long borrowCount, long totalBorrowWaitNanos, long maxBorrowWaitNanos,
+                        long returnCount, long totalHoldNanos, long maxHoldNanos,
+                        long validations, long evictions, long leaksDetected,
+                        long statementCacheHits, long statementCacheMisses) {
+            this.totalConnections = totalConnections;
+            this.idleConnections = idleConnections;
+            this.activeConnections = activeConnections;
+            this.borrowCount = borrowCount;
+            this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+            this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+            this.returnCount = returnCount;
+            this.totalHoldNanos = totalHoldNanos;
+            this.maxHoldNanos = maxHoldNanos;
+            this.validations = validations;
+            this.evictions = evictions;
+            this.leaksDetected = leaksDetected;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+        }
+
+        public int getTotalConnections() {
+            return totalConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getActiveConnections() {
+            return activeConnections;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getTotalBorrowWaitNanos() {
+            return totalBorrowWaitNanos;
+        }
+
+        public long getMaxBorrowWaitNanos() {
+            return maxBorrowWaitNanos;
+        }
+
+        public long getReturnCount() {
+            return returnCount;
+        }
+
+        public long getTotalHoldNanos() {
+            return totalHoldNanos;
+        }
+
+        public long getMaxHoldNanos() {
+            return maxHoldNanos;
+        }
+
+        public long getValidations() {
+            return validations;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getLeaksDetected() {
+            return leaksDetected;
+        }
+
+        public long getStatementCacheHits() {
+            return statementCacheHits;
+        }
+
+        public long getStatementCacheMisses() {
+            return statementCacheMisses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("total=%d idle=%d active=%d borrows=%d avgWait=%.3fms maxWait=%.3fms " +
+                            "returns=%d avgHold=%.3fms maxHold=%.3fms validations=%d evictions=%d leaks=%d " +
+                            "stmtHits=%d stmtMisses=%d",
+                    totalConnections, idleConnections, activeConnections, borrowCount,
+                    borrowCount == 0 ? 0.0 : totalBorrowWaitNanos / (double) borrowCount / 1_000_000.0,
+                    maxBorrowWaitNanos / 1_000_000.0, returnCount,
+                    returnCount == 0 ? 0.0 : totalHoldNanos / (double) returnCount / 1_000_000.0,
+                    maxHoldNanos / 1_000_000.0, validations, evictions, leaksDetected,
+                    statementCacheHits, statementCacheMisses);
+        }
+    }
+}
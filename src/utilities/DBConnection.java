@@ -1,67 +1,107 @@
 package utilities;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Manages the connection to the database.
  * This class provides methods for connecting, return the connection to the database, and
- * disconnect from the DB.
+ * disconnect from the DB. Connections are served from a bounded {@link ConnectionPool}; callers
+ * must close the connection they get from {@link #getConnection()} to return it to the pool.
+ * The pool can be tuned with the {@code db.pool.*} system properties, and the database to connect to is
+ * chosen with {@link DataSourceConfig}.
  */
 public abstract class DBConnection {
-    private static final String protocol = "jdbc";
-    private static final String vendor = ":mysql:";
-    private static final String location = "//localhost/";
-    private static final String databaseName = "client_schedule";
-    private static final String jdbcUrl = protocol + vendor + location + databaseName;
-    private static final String driver = "com.mysql.cj.jdbc.Driver"; // Driver reference
-    private static final String userName = "sqlUser"; // Username
-    private static String password = "Passw0rd!"; // Password
+    private static final Log log = Log.get(DBConnection.class);
 
-    public static Connection connection;  // Connection Interface
+    private static final int minPoolSize = Integer.getInteger("db.pool.minSize", 2);
+    private static final int maxPoolSize = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long idleTimeoutMillis = Long.getLong("db.pool.idleTimeoutMillis", 300_000L);
+    private static final long validateAfterIdleMillis = Long.getLong("db.pool.validateAfterIdleMillis", 30_000L);
+    private static final long leakThresholdMillis = Long.getLong("db.pool.leakThresholdMillis", 60_000L);
+    private static final long borrowTimeoutMillis = Long.getLong("db.pool.borrowTimeoutMillis", 10_000L);
+    private static final int statementCacheSize = Integer.getInteger("db.pool.statementCacheSize", 32);
+
+    private static volatile ConnectionPool pool;  // Connection pool
 
     /**
-     * Establish the connection to the database.
-     * @return The current connection.
+     * Establish the connection pool to the database. The embedded database is created and the schema
+     * migrations are applied before the pool is published, so {@link #getConnection()} never hands out a
+     * connection to a database that is not ready.
+     * @return The connection pool, or null if the driver is missing or the database could not be prepared;
+     * the next call tries again.
      */
-    public static Connection openConnection()
+    public static synchronized ConnectionPool openConnection()
     {
+        if (pool != null) {
+            return pool;
+        }
+        DataSourceConfig config = DataSourceConfig.load();
+        ConnectionPool opened;
         try {
-            Class.forName(driver); // Locate Driver
-            connection = DriverManager.getConnection(jdbcUrl, userName, password); // Reference Connection object
-            System.out.println("Connection successful!");
+            Class.forName(config.getDriver()); // Locate Driver
+            opened = new ConnectionPool(config.getUrl(), config.getUser(), config.getPassword(), minPoolSize, maxPoolSize,
+                    idleTimeoutMillis, validateAfterIdleMillis, leakThresholdMillis, borrowTimeoutMillis,
+                    statementCacheSize);
+            log.info("Connection successful!");
         }
-        catch(SQLException | ClassNotFoundException e)
+        catch(ClassNotFoundException e)
         {
-            //System.out.println("Error:" + e.getMessage());
-            e.printStackTrace();
+            log.error("JDBC driver not found: " + config.getDriver(), e);
+            return null;
+        }
+
+        try (Connection conn = opened.borrow()) {
+            if (config.isEmbedded()) {
+                EmbeddedDatabase.initialize(conn);
+            }
+            SchemaMigration.migrate(conn);
         }
-        return connection;
+        catch(SQLException e)
+        {
+            log.error("Database setup failed; the connection pool is closed", e);
+            opened.close();
+            return null;
+        }
+        pool = opened;
+        return pool;
     }
 
     /**
-     * Gets the current connection.
-     * @return The current connection.
+     * Borrows a connection from the pool. The connection must be closed once the caller is done with it,
+     * which returns it to the pool.
+     * @return A pooled connection.
+     * @throws SQLException if no connection is available.
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed() || !connection.isValid(5)) {
-            connection = openConnection();
+        ConnectionPool current = pool;
+        if (current == null) {
+            current = openConnection();
+            if (current == null) {
+                throw new SQLException("Database not available.");
+            }
         }
-        return connection;
+        return current.borrow();
     }
 
     /**
-     * Closes the connection to the database.
+     * Gets the borrow and return statistics of the connection pool.
+     * @return The pool metrics, or null if the pool has not been opened.
      */
-    public static void closeConnection() {
-        try {
-            connection.close();
-            System.out.println("Connection closed!");
-        }
-        catch(Exception e)
-        {
-            //not a problem
+    public static ConnectionPool.Metrics getPoolMetrics() {
+        ConnectionPool current = pool;
+        return current != null ? current.getMetrics() : null;
+    }
+
+    /**
+     * Closes the connection pool and every idle connection.
+     */
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            log.info("Connection pool: " + pool.getMetrics());
+            pool.close();
+            pool = null;
+            log.info("Connection closed!");
         }
     }
 }
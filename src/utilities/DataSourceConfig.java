@@ -0,0 +1,137 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * The settings used to connect to the database. They are read, each overriding the previous, from:
+ * <ol>
+ *     <li>the defaults of the profile named by {@code db.profile}: {@code mysql} (the default) for the local
+ *     MySQL {@code client_schedule} database, or {@code h2} for an in-memory H2 database in MySQL mode,
+ *     which is created and seeded when the pool opens;</li>
+ *     <li>{@code db.properties} on the classpath (in {@code src});</li>
+ *     <li>the file named by the {@code db.config} system property, if any;</li>
+ *     <li>{@code db.*} system properties.</li>
+ * </ol>
+ * The settings are {@code db.url}, {@code db.user}, {@code db.password} and {@code db.driver}.
+ * The H2 profile needs the H2 jar in {@code lib}.
+ */
+public final class DataSourceConfig {
+    private static final Log log = Log.get(DataSourceConfig.class);
+
+    private final String profile;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String driver;
+
+    private DataSourceConfig(String profile, String url, String user, String password, String driver) {
+        this.profile = profile;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.driver = driver;
+    }
+
+    /**
+     * Reads the settings from the profile defaults, the properties files and the system properties.
+     * @return The database settings.
+     */
+    public static DataSourceConfig load() {
+        Properties properties = new Properties();
+        readResource(properties, "/db.properties");
+        String configFile = System.getProperty("db.config");
+        if (configFile != null) {
+            readFile(properties, Paths.get(configFile));
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("db.")) {
+                properties.setProperty(name, System.getProperty(name));
+            }
+        }
+
+        String profile = properties.getProperty("db.profile", "mysql");
+        Properties defaults = profileDefaults(profile);
+        DataSourceConfig config = new DataSourceConfig(profile,
+                properties.getProperty("db.url", defaults.getProperty("db.url")),
+                properties.getProperty("db.user", defaults.getProperty("db.user")),
+                properties.getProperty("db.password", defaults.getProperty("db.password")),
+                properties.getProperty("db.driver", defaults.getProperty("db.driver")));
+        log.info("Database profile " + profile + ": " + config.url);
+        return config;
+    }
+
+    private static Properties profileDefaults(String profile) {
+        Properties defaults = new Properties();
+        switch (profile) {
+            case "mysql":
+                // Prepare statements on the server so cached ones skip parsing
+                defaults.setProperty("db.url", "jdbc:mysql://localhost/client_schedule?useServerPrepStmts=true");
+                defaults.setProperty("db.user", "sqlUser");
+                defaults.setProperty("db.password", "Passw0rd!");
+                defaults.setProperty("db.driver", "com.mysql.cj.jdbc.Driver");
+                break;
+            case "h2":
+                // END, VALUE and USER are column names here but keywords in H2
+                defaults.setProperty("db.url", "jdbc:h2:mem:client_schedule;MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+                        "CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=END,VALUE,USER;DB_CLOSE_DELAY=-1");
+                defaults.setProperty("db.user", "sa");
+                defaults.setProperty("db.password", "");
+                defaults.setProperty("db.driver", "org.h2.Driver");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown database profile: " + profile);
+        }
+        return defaults;
+    }
+
+    private static void readResource(Properties properties, String resource) {
+        try (InputStream in = DataSourceConfig.class.getResourceAsStream(resource)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            log.warn("Could not read " + resource, e);
+        }
+    }
+
+    private static void readFile(Properties properties, Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            log.warn("Could not read database settings from " + file, e);
+        }
+    }
+
+    /**
+     * Tells whether the database is an embedded one that has to be created and seeded by the application.
+     * @return true for the H2 profile.
+     */
+    public boolean isEmbedded() {
+        return "h2".equals(profile);
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getDriver() {
+        return driver;
+    }
+}
@@ -0,0 +1,70 @@
+package utilities;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates and seeds the {@code client_schedule} schema in an embedded database, so the application and its
+ * DAO benchmarks can run without a MySQL server. The schema is read from {@code resources/schema.sql} and the
+ * sample data from {@code resources/seed.sql}; both only run when the database has no {@code users} table yet.
+ */
+public class EmbeddedDatabase {
+    private static final Log log = Log.get(EmbeddedDatabase.class);
+
+    /**
+     * Creates the schema and loads the sample data if the database is empty.
+     * @param conn The connection to the embedded database.
+     * @throws SQLException if a script fails.
+     */
+    public static void initialize(Connection conn) throws SQLException {
+        // Look in the connection's own schema; H2 also has an INFORMATION_SCHEMA.USERS table
+        try (ResultSet tables = conn.getMetaData().getTables(conn.getCatalog(), conn.getSchema(), "users", new String[] {"TABLE"})) {
+            if (tables.next()) {
+                return;
+            }
+        }
+        runScript(conn, "/resources/schema.sql");
+        runScript(conn, "/resources/seed.sql");
+        log.info("Created and seeded the embedded database");
+    }
+
+    /**
+     * Runs the statements of a SQL script from the classpath. Statements end with a semicolon at the end of
+     * a line; lines starting with {@code --} are comments.
+     * @param conn The connection to run the script on.
+     * @param resource The classpath location of the script.
+     * @throws SQLException if the script cannot be read or a statement fails.
+     */
+    public static void runScript(Connection conn, String resource) throws SQLException {
+        InputStream in = EmbeddedDatabase.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new SQLException("SQL script not found: " + resource);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+             Statement st = conn.createStatement()) {
+            StringBuilder statement = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                statement.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    statement.setLength(statement.lastIndexOf(";"));
+                    st.execute(statement.toString());
+                    statement.setLength(0);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read SQL script " + resource, e);
+        }
+    }
+}
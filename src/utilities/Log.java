@@ -0,0 +1,222 @@
+package utilities;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A small leveled logger. Events are queued by the calling thread and written to the console by a single
+ * background thread, so logging never blocks a query or the JavaFX thread on console output.
+ * <p>
+ * Every event is written as one line with fixed fields: time (UTC), level, thread, logger and message.
+ * The threshold is set with the {@code log.level} system property ({@code INFO} by default) and can be
+ * overridden per class or package, e.g. {@code -Dlog.level.DAO=DEBUG}.
+ * <p>
+ * Hot paths such as result set loops log at {@link Level#TRACE} or {@link Level#DEBUG} through a
+ * {@link Supplier}, so the message is only built when that level is enabled.
+ */
+public final class Log {
+
+    /**
+     * The severity of a log event, from the most to the least verbose.
+     */
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR }
+
+    private static final int queueCapacity = Integer.getInteger("log.queueCapacity", 8192);
+    private static final Level defaultLevel = parseLevel(System.getProperty("log.level"), Level.INFO);
+
+    private static final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+    private static final AtomicLong dropped = new AtomicLong();
+
+    static {
+        startWriter();
+    }
+
+    private final String name;
+    private final Level threshold;
+
+    /**
+     * A log event waiting to be written.
+     */
+    private static final class Event {
+        private final long timeMillis = System.currentTimeMillis();
+        private final String thread = Thread.currentThread().getName();
+        private final Level level;
+        private final String logger;
+        private final String message;
+        private final Throwable error;
+
+        private Event(Level level, String logger, String message, Throwable error) {
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    private Log(String name) {
+        this.name = name;
+        this.threshold = thresholdFor(name);
+    }
+
+    /**
+     * Gets a logger named after a class.
+     * @param type The class that logs.
+     * @return The logger.
+     */
+    public static Log get(Class<?> type) {
+        return new Log(type.getName());
+    }
+
+    /**
+     * Checks whether events of a level are written. Use it to guard logging that needs more work than
+     * building the message, e.g. collecting values inside a loop.
+     * @param level The level to check.
+     * @return true if events of that level are written.
+     */
+    public boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    public void trace(Supplier<String> message) {
+        if (isEnabled(Level.TRACE)) {
+            enqueue(Level.TRACE, message.get(), null);
+        }
+    }
+
+    public void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            enqueue(Level.DEBUG, message.get(), null);
+        }
+    }
+
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            enqueue(Level.INFO, message, null);
+        }
+    }
+
+    public void warn(String message) {
+        warn(message, null);
+    }
+
+    public void warn(String message, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            enqueue(Level.WARN, message, error);
+        }
+    }
+
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            enqueue(Level.ERROR, message, error);
+        }
+    }
+
+    /**
+     * Writes every queued event. Called on shutdown so the last events are not lost.
+     */
+    public static void flush() {
+        List<Event> pending = new ArrayList<>();
+        synchronized (queue) {
+            queue.drainTo(pending);
+            write(pending);
+        }
+    }
+
+    /**
+     * Queues an event. When the queue is full, TRACE to INFO events are dropped and counted
+     * while warnings and errors wait for room.
+     */
+    private void enqueue(Level level, String message, Throwable error) {
+        Event event = new Event(level, name, message, error);
+        if (queue.offer(event)) {
+            return;
+        }
+        if (level.compareTo(Level.WARN) < 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void startWriter() {
+        Thread t = new Thread(() -> {
+            List<Event> batch = new ArrayList<>();
+            while (true) {
+                try {
+                    Event first = queue.poll(1, TimeUnit.SECONDS);
+                    synchronized (queue) {
+                        if (first != null) {
+                            batch.add(first);
+                        }
+                        queue.drainTo(batch);
+                        write(batch);
+                    }
+                    batch.clear();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "log-writer");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    /**
+     * Formats and prints a batch of events. Errors and warnings go to standard error, the rest to standard out.
+     */
+    private static void write(List<Event> batch) {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            System.err.println(Instant.now() + " WARN  [log-writer] " + Log.class.getName() +
+                    " - dropped " + lost + " log events, queue full");
+        }
+        for (Event event : batch) {
+            PrintStream out = event.level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+            out.println(Instant.ofEpochMilli(event.timeMillis) + " " +
+                    String.format("%-5s", event.level) + " [" + event.thread + "] " +
+                    event.logger + " - " + event.message);
+            if (event.error != null) {
+                event.error.printStackTrace(out);
+            }
+        }
+    }
+
+    /**
+     * Finds the threshold of a logger: the most specific {@code log.level.<prefix>} property, or {@code log.level}.
+     */
+    private static Level thresholdFor(String name) {
+        String prefix = name;
+        while (!prefix.isEmpty()) {
+            String value = System.getProperty("log.level." + prefix);
+            if (value != null) {
+                return parseLevel(value, defaultLevel);
+            }
+            int dot = prefix.lastIndexOf('.');
+            prefix = dot > 0 ? prefix.substring(0, dot) : "";
+        }
+        return defaultLevel;
+    }
+
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Answers queries over the login activity log written by {@link LoginAuditWriter} without reading the
+ * whole log for every query.
+ * <p>
+ * The rotated segments never change, so they are memory-mapped. The active file is still being appended to,
+ * so it is read through its channel instead; a mapping could otherwise stop the writer from renaming it on
+ * platforms that lock mapped files. Its bytes are kept in a growing buffer, and each query only reads the
+ * bytes appended since the previous one. Each line is parsed once, when it is first seen, into two indexes:
+ * <ul>
+ *     <li>a sparse timestamp index holding the position of every 64th line, used to jump to the start of a
+ *     time window and read only the lines inside it;</li>
+ *     <li>a per-username index of attempt times and outcomes, sorted by time, which answers
+ *     per-user queries with a binary search.</li>
+ * </ul>
+ * Every query first picks up the lines appended since the last one. If the segments changed because the log
+ * was rotated, everything is indexed again. Lines with a malformed timestamp are skipped.
+ * Timestamps are the local date-times written in the log; windows are half-open, {@code [from, to)}.
+ */
+public class LoginActivityLog {
+    private static final Log log = Log.get(LoginActivityLog.class);
+
+    private static final int sparseInterval = 64;
+    private static final byte[] prefix = ascii("Timestamp: ");
+    private static final int timestampLength = 19; // yyyy-MM-dd HH:mm:ss
+    private static final int usernameOffset = prefix.length + timestampLength + ", Username: ".length();
+    private static final byte[] successSuffix = ascii(", Success: true");
+    private static final byte[] failureSuffix = ascii(", Success: false");
+    private static final long malformed = Long.MIN_VALUE; // Returned by parseSeconds for a bad timestamp
+
+    private static final List<Segment> segments = new ArrayList<>();
+    private static final Map<String, UserAttempts> byUser = new HashMap<>();
+    private static long[] sparseTimes = new long[64];
+    private static int[] sparseSegments = new int[64];
+    private static int[] sparseOffsets = new int[64];
+    private static int sparseSize;
+    private static long lineCount;
+
+    /**
+     * A single login attempt read from the log.
+     */
+    public static final class Attempt {
+        private final LocalDateTime time;
+        private final String username;
+        private final boolean success;
+
+        private Attempt(LocalDateTime time, String username, boolean success) {
+            this.time = time;
+            this.username = username;
+            this.success = success;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+    }
+
+    /**
+     * The number of attempts, and of failed ones, within one hour.
+     */
+    public static final class HourlyCount {
+        private final LocalDateTime hour;
+        private int attempts;
+        private int failures;
+
+        private HourlyCount(LocalDateTime hour) {
+            this.hour = hour;
+        }
+
+        public LocalDateTime getHour() {
+            return hour;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+    }
+
+    /**
+     * One file of the log and the bytes indexed so far. For the active file, {@code data} holds the bytes read
+     * so far, up to its limit, and has room for more.
+     */
+    private static class Segment {
+        private final Path path;
+        private ByteBuffer data;
+        private int indexedTo;
+
+        private Segment(Path path, ByteBuffer data) {
+            this.path = path;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The attempt times (in epoch seconds) and outcomes of one user, in log order.
+     */
+    private static class UserAttempts {
+        private long[] times = new long[8];
+        private boolean[] success = new boolean[8];
+        private int size;
+
+        private void add(long time, boolean succeeded) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                success = Arrays.copyOf(success, size * 2);
+            }
+            times[size] = time;
+            success[size] = succeeded;
+            size++;
+        }
+    }
+
+    /**
+     * Finds the failed login attempts of a user within a time window.
+     * @param username The username to look up.
+     * @param from The start of the window, inclusive.
+     * @param to The end of the window, exclusive.
+     * @return The failed attempts, oldest first.
+     */
+    public static synchronized List<Attempt> getFailedAttempts(String username, LocalDateTime from, LocalDateTime to) {
+        refresh();
+        List<Attempt> failed = new ArrayList<>();
+        UserAttempts attempts = byUser.get(username);
+        if (attempts == null) {
+            return failed;
+        }
+        long fromSeconds = toSeconds(from);
+        long toSeconds = toSeconds(to);
+        for (int i = lowerBound(attempts.times, attempts.size, fromSeconds); i < attempts.size && attempts.times[i] < toSeconds; i++) {
+            if (!attempts.success[i]) {
+                failed.add(new Attempt(toDateTime(attempts.times[i]), username, false));
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Counts the login attempts, and the failed ones, for every hour of a time window that had any.
+     * Only the lines inside the window are read, starting from the closest sparse index entry.
+     * @param from The start of the window, inclusive.
+     * @param to The end of the window, exclusive.
+     * @return The hourly counts, oldest hour first.
+     */
+    public static synchronized List<HourlyCount> getAttemptsPerHour(LocalDateTime from, LocalDateTime to) {
+        refresh();
+        long fromSeconds = toSeconds(from);
+        long toSeconds = toSeconds(to);
+        TreeMap<Long, HourlyCount> hours = new TreeMap<>();
+
+        // Start at the last sampled line strictly before the window, so equal timestamps are not skipped
+        int entry = lowerBound(sparseTimes, sparseSize, fromSeconds) - 1;
+        int segmentIndex = entry >= 0 ? sparseSegments[entry] : 0;
+        int offset = entry >= 0 ? sparseOffsets[entry] : 0;
+
+        scan:
+        for (; segmentIndex < segments.size(); segmentIndex++, offset = 0) {
+            Segment segment = segments.get(segmentIndex);
+            int position = offset;
+            while (position < segment.indexedTo) {
+                int end = lineEnd(segment.data, position, segment.indexedTo);
+                int contentEnd = trimCarriageReturn(segment.data, position, end);
+                if (isAttempt(segment.data, position, contentEnd)) {
+                    long time = parseSeconds(segment.data, position + prefix.length);
+                    if (time == malformed) {
+                        position = end + 1;
+                        continue;
+                    }
+                    if (time >= toSeconds) {
+                        break scan;
+                    }
+                    if (time >= fromSeconds) {
+                        long hour = time - Math.floorMod(time, 3600L);
+                        HourlyCount count = hours.computeIfAbsent(hour, h -> new HourlyCount(toDateTime(h)));
+                        count.attempts++;
+                        if (endsWith(segment.data, contentEnd, failureSuffix)) {
+                            count.failures++;
+                        }
+                    }
+                }
+                position = end + 1;
+            }
+        }
+        return new ArrayList<>(hours.values());
+    }
+
+    /**
+     * Indexes the lines appended since the last query, or the whole log again if it was rotated.
+     */
+    private static void refresh() {
+        try {
+            List<Path> rotated = LoginAuditWriter.listSegments();
+            Path active = LoginAuditWriter.getFile().toAbsolutePath();
+
+            boolean rebuild = segments.size() != rotated.size() + 1;
+            for (int i = 0; !rebuild && i < rotated.size(); i++) {
+                rebuild = !segments.get(i).path.equals(rotated.get(i));
+            }
+            if (rebuild) {
+                clear();
+                for (Path path : rotated) {
+                    segments.add(new Segment(path, map(path)));
+                }
+                segments.add(new Segment(active, ByteBuffer.allocate(0)));
+                for (int i = 0; i < segments.size() - 1; i++) {
+                    index(i);
+                }
+            }
+
+            Segment current = segments.get(segments.size() - 1);
+            if (!readAppended(current)) {
+                // The active file shrank without a rotation being seen; start over.
+                clear();
+                refresh();
+                return;
+            }
+            index(segments.size() - 1);
+        } catch (IOException e) {
+            log.error("Error reading login activity log", e);
+        }
+    }
+
+    private static void clear() {
+        segments.clear();
+        byUser.clear();
+        sparseSize = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Parses the complete lines of a segment that have not been indexed yet.
+     */
+    private static void index(int segmentIndex) {
+        Segment segment = segments.get(segmentIndex);
+        ByteBuffer data = segment.data;
+        int position = segment.indexedTo;
+        while (position < data.limit()) {
+            int end = lineEnd(data, position, data.limit());
+            if (end == data.limit()) {
+                break; // A partial last line; it is indexed once the writer finishes it
+            }
+            int contentEnd = trimCarriageReturn(data, position, end);
+            if (isAttempt(data, position, contentEnd)) {
+                long time = parseSeconds(data, position + prefix.length);
+                if (time == malformed) {
+                    log.warn("Skipping a login activity line with a malformed timestamp in " + segment.path);
+                    position = end + 1;
+                    continue;
+                }
+                boolean success = endsWith(data, contentEnd, successSuffix);
+                int usernameEnd = contentEnd - (success ? successSuffix.length : failureSuffix.length);
+                String username = decode(data, position + usernameOffset, usernameEnd);
+
+                if (lineCount % sparseInterval == 0) {
+                    addSparseEntry(time, segmentIndex, position);
+                }
+                lineCount++;
+                byUser.computeIfAbsent(username, u -> new UserAttempts()).add(time, success);
+            }
+            position = end + 1;
+        }
+        segment.indexedTo = position;
+    }
+
+    private static void addSparseEntry(long time, int segmentIndex, int offset) {
+        if (sparseSize == sparseTimes.length) {
+            sparseTimes = Arrays.copyOf(sparseTimes, sparseSize * 2);
+            sparseSegments = Arrays.copyOf(sparseSegments, sparseSize * 2);
+            sparseOffsets = Arrays.copyOf(sparseOffsets, sparseSize * 2);
+        }
+        sparseTimes[sparseSize] = time;
+        sparseSegments[sparseSize] = segmentIndex;
+        sparseOffsets[sparseSize] = offset;
+        sparseSize++;
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Reads the bytes appended to the active file since the last call onto the end of its buffer, growing the
+     * buffer when it is full. Only the new bytes are read from the file.
+     * @return false if the file is now shorter than what was read before, true otherwise.
+     */
+    private static boolean readAppended(Segment segment) throws IOException {
+        if (!Files.exists(segment.path)) {
+            return segment.data.limit() == 0;
+        }
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int readTo = segment.data.limit();
+            if (size < readTo) {
+                return false;
+            }
+            if (size == readTo) {
+                return true;
+            }
+            ByteBuffer data = segment.data;
+            if (size > data.capacity()) {
+                data = ByteBuffer.allocate((int) Math.max(size, 2L * data.capacity()));
+                data.put(segment.data.duplicate().position(0).limit(readTo));
+            }
+            data.limit((int) size).position(readTo);
+            while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+                // Keep reading until the new bytes are in or the file ends
+            }
+            data.flip();
+            segment.data = data;
+            return true;
+        }
+    }
+
+    /**
+     * Gets the position of the line feed ending the line that starts at {@code position}, or {@code limit}.
+     */
+    private static int lineEnd(ByteBuffer data, int position, int limit) {
+        while (position < limit && data.get(position) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    private static int trimCarriageReturn(ByteBuffer data, int start, int end) {
+        return end > start && data.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Checks that a line looks like an attempt written by {@link LoginAuditWriter}.
+     */
+    private static boolean isAttempt(ByteBuffer data, int start, int end) {
+        if (end - start < usernameOffset + successSuffix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return endsWith(data, end, successSuffix) || endsWith(data, end, failureSuffix);
+    }
+
+    private static boolean endsWith(ByteBuffer data, int end, byte[] suffix) {
+        int start = end - suffix.length;
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (data.get(start + i) != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a {@code yyyy-MM-dd HH:mm:ss} timestamp straight from the bytes into epoch seconds.
+     * @return The epoch seconds, or {@code malformed} if the bytes are not a valid timestamp.
+     */
+    private static long parseSeconds(ByteBuffer data, int start) {
+        int year = digits(data, start, 4);
+        int month = digits(data, start + 5, 2);
+        int day = digits(data, start + 8, 2);
+        int hour = digits(data, start + 11, 2);
+        int minute = digits(data, start + 14, 2);
+        int second = digits(data, start + 17, 2);
+        if (year < 0 || month < 0 || day < 0 || hour > 23 || minute > 59 || second > 59 || (hour | minute | second) < 0) {
+            return malformed;
+        }
+        try {
+            return LocalDate.of(year, month, day).toEpochDay() * 86_400L + hour * 3600L + minute * 60L + second;
+        } catch (DateTimeException e) {
+            return malformed;
+        }
+    }
+
+    /**
+     * Parses a fixed number of decimal digits.
+     * @return The value, or -1 if a byte is not a digit.
+     */
+    private static int digits(ByteBuffer data, int start, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = data.get(start + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static String decode(ByteBuffer data, int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the index of the first element not less than {@code key} in the first {@code size} sorted elements.
+     */
+    private static int lowerBound(long[] values, int size, long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,241 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends login attempts to {@code login_activity.txt} without blocking the caller on file I/O.
+ * <p>
+ * Attempts are put on a lock-free queue and written by a single daemon thread that keeps the file open.
+ * The writer takes everything queued at once and writes it with one {@code write} and one {@code force}
+ * (group commit), so a burst of attempts costs one disk sync instead of one open, write and close per attempt.
+ * <p>
+ * When the file would grow past {@code audit.maxBytes} (10 MB by default) it is renamed to
+ * {@code login_activity-<yyyyMMdd'T'HHmmss>.txt} and a new one is started; only the newest
+ * {@code audit.maxSegments} rotated files (5 by default) are kept. Pending attempts are written when
+ * {@link #close()} is called or the JVM shuts down.
+ */
+public class LoginAuditWriter {
+    private static final Log log = Log.get(LoginAuditWriter.class);
+
+    private static final Path file = Paths.get(System.getProperty("audit.file", "login_activity.txt"));
+    private static final long maxBytes = Long.getLong("audit.maxBytes", 10L * 1024 * 1024);
+    private static final int maxSegments = Integer.getInteger("audit.maxSegments", 5);
+    private static final int queueCapacity = Integer.getInteger("audit.queueCapacity", 65_536);
+    private static final boolean force = !"false".equalsIgnoreCase(System.getProperty("audit.fsync"));
+
+    private static final DateTimeFormatter timestampFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter segmentFormat = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private static final Queue<Attempt> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger queued = new AtomicInteger();
+    private static volatile boolean closed;
+    private static final Thread writer = startWriter();
+
+    private static FileChannel channel; // Only used by the writer thread
+
+    /**
+     * A login attempt waiting to be written.
+     */
+    private static final class Attempt {
+        private final LocalDateTime time = LocalDateTime.now();
+        private final String username;
+        private final boolean success;
+
+        private Attempt(String username, boolean success) {
+            this.username = username;
+            this.success = success;
+        }
+    }
+
+    /**
+     * Queues a login attempt to be written. Returns right away unless the queue is full, in which case the
+     * caller waits for the writer to catch up, so no attempt is ever dropped.
+     * @param username The username of the account that attempted to log in.
+     * @param success Whether the attempt succeeded.
+     */
+    public static void append(String username, boolean success) {
+        if (closed) {
+            log.warn("Login audit log is closed; attempt by " + username + " not recorded");
+            return;
+        }
+        while (queued.get() >= queueCapacity) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        queue.offer(new Attempt(username, success));
+        queued.incrementAndGet();
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Writes every pending attempt and closes the file. Later attempts are not recorded.
+     */
+    public static void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Thread startWriter() {
+        Thread t = new Thread(LoginAuditWriter::run, "login-audit-writer");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(LoginAuditWriter::close, "login-audit-flush"));
+        return t;
+    }
+
+    /**
+     * The writer loop: waits for attempts, writes them in batches and closes the file once closed.
+     */
+    private static void run() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            boolean closing = closed; // Read before draining so nothing queued before close() is missed
+            int count = drain(batch);
+            if (count > 0) {
+                write(batch);
+                queued.addAndGet(-count);
+                batch.setLength(0);
+            } else if (closing) {
+                break;
+            } else {
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        closeChannel();
+    }
+
+    /**
+     * Formats every queued attempt into the batch.
+     * @return The number of attempts taken from the queue.
+     */
+    private static int drain(StringBuilder batch) {
+        int count = 0;
+        Attempt attempt;
+        while ((attempt = queue.poll()) != null) {
+            batch.append("Timestamp: ");
+            timestampFormat.formatTo(attempt.time, batch);
+            batch.append(", Username: ").append(attempt.username)
+                 .append(", Success: ").append(attempt.success)
+                 .append(System.lineSeparator());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes a batch with a single write and sync, rotating the file first if the batch would not fit.
+     */
+    private static void write(StringBuilder batch) {
+        ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            if (channel == null) {
+                channel = open();
+            }
+            if (channel.size() > 0 && channel.size() + bytes.remaining() > maxBytes) {
+                rotate();
+            }
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            log.error("Error writing to login activity log", e);
+            closeChannel();
+        }
+    }
+
+    private static FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Renames the current file to a timestamped segment, starts a new one and deletes the oldest segments.
+     */
+    private static void rotate() throws IOException {
+        closeChannel();
+        Path directory = file.toAbsolutePath().getParent();
+        String stamp = LocalDateTime.now().format(segmentFormat);
+        Path segment = directory.resolve(segmentPrefix() + stamp + ".txt");
+        for (int i = 1; Files.exists(segment); i++) {
+            segment = directory.resolve(segmentPrefix() + stamp + "-" + i + ".txt");
+        }
+        Files.move(file, segment);
+        channel = open();
+        log.info("Rotated login activity log to " + segment.getFileName());
+
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    /**
+     * Lists the rotated segments of the log, oldest first.
+     * @return The paths of the rotated segments.
+     * @throws IOException if the directory cannot be read.
+     */
+    public static List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        Path directory = file.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, segmentPrefix() + "*.txt")) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments); // The timestamp in the name sorts chronologically
+        return segments;
+    }
+
+    /**
+     * Gets the path of the file currently being written.
+     * @return The path of the active log file.
+     */
+    public static Path getFile() {
+        return file;
+    }
+
+    private static String segmentPrefix() {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "-";
+    }
+
+    private static void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing login activity log", e);
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package utilities;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how often logins can be attempted, so a scripted client cannot hammer the database with
+ * password lookups. Every attempt is checked against two sliding windows before the database is queried:
+ * one per username ({@code login.throttle.userLimit} attempts, 5 by default) and one for all users together
+ * ({@code login.throttle.globalLimit}, 100 by default), both over {@code login.throttle.windowSeconds}
+ * (60 by default). A successful login clears the user's window. Usernames are matched case-insensitively,
+ * like the database's lookup, so "admin" and "ADMIN" share one window.
+ * <p>
+ * The per-user windows live in a {@link ConcurrentHashMap}, so users never contend with each other.
+ * Each one is a sliding window counter: the count of the previous fixed window, weighted by how much of it
+ * still overlaps the sliding window, plus the count of the current one. The global window is split into
+ * ten slots, each counted with a {@link LongAdder} so concurrent attempts do not contend on one counter.
+ */
+public class LoginThrottle {
+    private static final Log log = Log.get(LoginThrottle.class);
+
+    private static final int userLimit = Integer.getInteger("login.throttle.userLimit", 5);
+    private static final int globalLimit = Integer.getInteger("login.throttle.globalLimit", 100);
+    private static final long windowNanos = TimeUnit.SECONDS.toNanos(Long.getLong("login.throttle.windowSeconds", 60L));
+    private static final int globalSlots = 10;
+    private static final long slotNanos = windowNanos / globalSlots;
+    private static final int cleanupInterval = 1024; // Drop idle user windows every this many attempts
+
+    private static final Map<String, UserWindow> users = new ConcurrentHashMap<>();
+    private static final LongAdder[] globalCounts = new LongAdder[globalSlots];
+    private static final AtomicLongArray globalSlotEpochs = new AtomicLongArray(globalSlots);
+    private static final AtomicLong attemptsSinceCleanup = new AtomicLong();
+
+    private static final LongAdder allowed = new LongAdder();
+    private static final LongAdder rejectedPerUser = new LongAdder();
+    private static final LongAdder rejectedGlobal = new LongAdder();
+
+    static {
+        for (int i = 0; i < globalSlots; i++) {
+            globalCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * The sliding window counter of one username.
+     */
+    private static class UserWindow {
+        private long windowStart;
+        private int previousCount;
+        private int currentCount;
+
+        private UserWindow(long now) {
+            windowStart = now;
+        }
+
+        /**
+         * Moves the fixed windows forward to the one containing {@code now}.
+         */
+        private void advance(long now) {
+            long elapsedWindows = (now - windowStart) / windowNanos;
+            if (elapsedWindows >= 1) {
+                previousCount = elapsedWindows == 1 ? currentCount : 0;
+                currentCount = 0;
+                windowStart += elapsedWindows * windowNanos;
+            }
+        }
+
+        /**
+         * Estimates the number of attempts in the sliding window ending at {@code now}.
+         */
+        private double estimate(long now) {
+            double previousWeight = 1.0 - (double) (now - windowStart) / windowNanos;
+            return previousCount * previousWeight + currentCount;
+        }
+
+        /**
+         * Estimates when the sliding window will have room for another attempt.
+         */
+        private long retryAfterNanos(long now) {
+            if (currentCount >= userLimit) {
+                return windowStart + windowNanos - now;
+            }
+            // Wait until enough of the previous window has slid out
+            double excess = estimate(now) - userLimit + 1;
+            return (long) Math.ceil(excess / previousCount * windowNanos);
+        }
+    }
+
+    /**
+     * The outcome of a throttle check.
+     */
+    public static final class Decision {
+        private static final Decision allow = new Decision(true, 0);
+
+        private final boolean allowed;
+        private final long retryAfterSeconds;
+
+        private Decision(boolean allowed, long retryAfterSeconds) {
+            this.allowed = allowed;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        /**
+         * Gets how long the caller should wait before trying again.
+         * @return The number of seconds to wait, or 0 if the attempt is allowed.
+         */
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /**
+     * Counts of the throttle decisions made so far.
+     */
+    public static final class Metrics {
+        private final long allowed;
+        private final long rejectedPerUser;
+        private final long rejectedGlobal;
+        private final int trackedUsers;
+
+        private Metrics(long allowed, long rejectedPerUser, long rejectedGlobal, int trackedUsers) {
+            this.allowed = allowed;
+            this.rejectedPerUser = rejectedPerUser;
+            this.rejectedGlobal = rejectedGlobal;
+            this.trackedUsers = trackedUsers;
+        }
+
+        public long getAllowed() {
+            return allowed;
+        }
+
+        public long getRejectedPerUser() {
+            return rejectedPerUser;
+        }
+
+        public long getRejectedGlobal() {
+            return rejectedGlobal;
+        }
+
+        public int getTrackedUsers() {
+            return trackedUsers;
+        }
+
+        @Override
+        public String toString() {
+            return "allowed=" + allowed + ", rejectedPerUser=" + rejectedPerUser +
+                   ", rejectedGlobal=" + rejectedGlobal + ", trackedUsers=" + trackedUsers;
+        }
+    }
+
+    /**
+     * Checks whether a login attempt may go ahead and counts it if so. Rejected attempts are not counted,
+     * so a client that keeps retrying too early does not extend its own lockout.
+     * @param username The username being logged in.
+     * @return The decision; when it is not allowed, the database must not be queried.
+     */
+    public static Decision tryAcquire(String username) {
+        long now = System.nanoTime();
+        cleanupIfDue(now);
+
+        if (globalCount(now) >= globalLimit) {
+            rejectedGlobal.increment();
+            log.warn("Login throttled: more than " + globalLimit + " attempts in the last window across all users");
+            return new Decision(false, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(slotNanos)));
+        }
+
+        String key = key(username);
+        UserWindow window = users.computeIfAbsent(key, k -> new UserWindow(now));
+        synchronized (window) {
+            window.advance(now);
+            if (window.estimate(now) >= userLimit) {
+                rejectedPerUser.increment();
+                long retryAfter = Math.max(1, (long) Math.ceil(window.retryAfterNanos(now) / 1e9));
+                log.warn("Login throttled for user " + key + "; retry in " + retryAfter + " s");
+                return new Decision(false, retryAfter);
+            }
+            window.currentCount++;
+        }
+        countGlobal(now);
+        allowed.increment();
+        return Decision.allow;
+    }
+
+    /**
+     * Clears a user's window after a successful login.
+     * @param username The username that logged in.
+     */
+    public static void reset(String username) {
+        users.remove(key(username));
+    }
+
+    /**
+     * Normalizes a username into the key of its window. The user lookup compares names case-insensitively,
+     * so every spelling of a name must share one window.
+     */
+    private static String key(String username) {
+        return username != null ? username.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Gets the throttle's counters.
+     * @return A snapshot of the metrics.
+     */
+    public static Metrics getMetrics() {
+        return new Metrics(allowed.sum(), rejectedPerUser.sum(), rejectedGlobal.sum(), users.size());
+    }
+
+    /**
+     * Sums the global slots that still fall inside the sliding window.
+     */
+    private static long globalCount(long now) {
+        long currentEpoch = now / slotNanos;
+        long total = 0;
+        for (int i = 0; i < globalSlots; i++) {
+            if (currentEpoch - globalSlotEpochs.get(i) < globalSlots) {
+                total += globalCounts[i].sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Counts an attempt in the global slot for {@code now}, clearing the slot first if it still holds
+     * the count of an older window.
+     */
+    private static void countGlobal(long now) {
+        long epoch = now / slotNanos;
+        int slot = (int) Math.floorMod(epoch, (long) globalSlots);
+        long slotEpoch = globalSlotEpochs.get(slot);
+        if (slotEpoch != epoch && globalSlotEpochs.compareAndSet(slot, slotEpoch, epoch)) {
+            globalCounts[slot].reset();
+        }
+        globalCounts[slot].increment();
+    }
+
+    /**
+     * Drops the windows of users who have not tried to log in for two whole windows, so random usernames
+     * from a scripted client do not pile up in memory.
+     */
+    private static void cleanupIfDue(long now) {
+        if (attemptsSinceCleanup.incrementAndGet() % cleanupInterval != 0) {
+            return;
+        }
+        Iterator<UserWindow> iterator = users.values().iterator();
+        while (iterator.hasNext()) {
+            UserWindow window = iterator.next();
+            synchronized (window) {
+                if (now - window.windowStart >= 2 * windowNanos) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+}
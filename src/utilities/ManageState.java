@@ -10,20 +10,33 @@ import javafx.scene.control.Alert;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import model.Appointment;
+import model.Session;
 
 import java.io.IOException;
+import java.sql.SQLException;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.stream.Collectors;
 
-import static DAO.AppointmentDAO.getAllAppointmentsForCustomer;
+import static DAO.AppointmentDAO.hasOverlappingAppointment;
 
 public class ManageState {
+    private static final Log log = Log.get(ManageState.class);
     private static Stage primaryStage;
     private static BorderPane mainBorderPane;
     private static ResourceBundle resourceBundle;
+    private static Session session;
+    public static final ZoneId businessZone = ZoneId.of("America/New_York"); // Business hours are kept in ET
+    public static final LocalTime businessStart = LocalTime.of(8, 0);
+    public static final LocalTime businessEnd = LocalTime.of(22, 0);
+    private static final DateTimeFormatter shortDateTime = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT);
+    private static final boolean useDatabaseOverlapCheck = "database".equalsIgnoreCase(System.getProperty("appointments.overlapCheck"));
 
     static {
         initLocale();
@@ -34,6 +47,31 @@ public class ManageState {
         primaryStage = stage;
     }
 
+    /**
+     * Keeps the session of the user who has just logged in for the rest of the application.
+     * @param newSession The session created at login.
+     */
+    public static void setSession(Session newSession) {
+        session = newSession;
+    }
+
+    /**
+     * Gets the session of the signed-in user.
+     * @return The session, or null before anyone has logged in.
+     */
+    public static Session getSession() {
+        return session;
+    }
+
+    /**
+     * Gets the time zone of the signed-in user, or the system's before anyone has logged in.
+     * @return The time zone times are shown in.
+     */
+    public static ZoneId getUserZone() {
+        Session current = session;
+        return current != null ? current.getZoneId() : ZoneId.systemDefault();
+    }
+
     public static ResourceBundle getRB() {
         return resourceBundle;
     }
@@ -46,12 +84,24 @@ public class ManageState {
         primaryStage.show();  // Show the stage if not already visible or refresh it
     }
 
+    /**
+     * Creates a scene for the main screen, using the copy pre-parsed by {@link Startup} if there is one, and
+     * makes its border pane the one every view and form is shown in. Called on the JavaFX application thread.
+     * @param fxml The path of the FXML file.
+     * @return The scene, with the view's controller as its user data.
+     * @throws IOException if the FXML file cannot be loaded.
+     */
     public static Scene getScene(String fxml) throws IOException {
-        FXMLLoader loader = new FXMLLoader(ManageState.class.getResource(fxml));
-        Parent root = loader.load();
+        FXMLLoader loader = Startup.takePreloaded(fxml);
+        if (loader == null) {
+            loader = new FXMLLoader(ManageState.class.getResource(fxml));
+            loader.load();
+        }
+        Parent root = loader.getRoot();
         Scene scene = new Scene(root);
         MainScreen controller = loader.getController();
         scene.setUserData(controller);
+        setMainBorderPane(controller.mainBorderPane);
         return scene;
     }
 
@@ -63,12 +113,18 @@ public class ManageState {
         return mainBorderPane;
     }
 
+    /**
+     * Gets a view through the {@link ViewCache}: views whose controller is {@link controller.Refreshable} are
+     * parsed once and refreshed on later calls, other views are loaded from FXML every time.
+     * @param fxml The path of the FXML file.
+     * @param resourceBundle The resource bundle used to localize the view.
+     * @return The root node of the view, or null if it could not be loaded.
+     */
     public static Node loadView(String fxml, ResourceBundle resourceBundle) {
         try {
-            FXMLLoader loader = new FXMLLoader(ManageState.class.getResource(fxml), resourceBundle);
-            return loader.load();
+            return ViewCache.get(fxml, resourceBundle);
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Error loading view: " + fxml, e);
             return null;
         }
     }
@@ -83,19 +139,16 @@ public class ManageState {
             }
             return view;
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Error loading view: " + fxml, e);
             return null;
         }
     }
 
     public static void loadView(String fxmlPath) {
         try {
-            FXMLLoader loader = new FXMLLoader(ManageState.class.getResource(fxmlPath));
-            Node view = loader.load();
-            mainBorderPane.setCenter(view);
+            mainBorderPane.setCenter(ViewCache.get(fxmlPath, resourceBundle));
         } catch (IOException e) {
-            System.err.println("Error loading view: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error loading view: " + fxmlPath, e);
         }
     }
 
@@ -105,109 +158,209 @@ public class ManageState {
     }
 
     public static boolean validateAppointment(ZonedDateTime startTime, ZonedDateTime endTime, ZoneId userTimeZone, int customerID) {
+        return validateAppointment(startTime, endTime, userTimeZone, customerID, -1);
+    }
 
-        // Check if the selected time is in the past
-        ZonedDateTime now = ZonedDateTime.now(userTimeZone);
-        if (startTime.isBefore(now)) {
-            showAlert("Invalid Date/Time", "Cannot schedule appointments in the past.");
+    public static boolean validateAppointment(ZonedDateTime startTime, ZonedDateTime endTime, ZoneId userTimeZone, int customerID, int appointmentID) {
+        ValidationError error = checkAppointment(startTime, endTime, userTimeZone, customerID, appointmentID);
+        if (error != null) {
+            showAlert(error.getTitle(), error.getMessage());
             return false;
         }
-        // Check if the end time is before the start time
-        if (endTime.isBefore(startTime)) {
-            showAlert("Invalid Date/Time", "End time cannot be before start time.");
-            return false;
+        // If all checks pass, proceed to save the appointment
+        return true;
+    }
+
+    /**
+     * A reason an appointment cannot be saved, as shown to the user.
+     */
+    public static final class ValidationError {
+        private final String title;
+        private final String message;
+
+        private ValidationError(String title, String message) {
+            this.title = title;
+            this.message = message;
         }
 
-        // Check for minimum duration of 15 minutes
-        if (Duration.between(startTime, endTime).toMinutes() < 15) {
-            showAlert("Duration Error", "Appointments must be at least 15 minutes long.");
-            return false;
+        public String getTitle() {
+            return title;
         }
 
-        // Check business hours in ET
-        if (!isWithinBusinessHours(startTime, endTime)) {
-            showAlert("Business Hours Violation", "Appointment must be between 08:00 and 10:00 ET.");
-            return false;
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Runs the checks of {@link #validateAppointment} without showing anything, so they can also be used
+     * where there is no user to alert.
+     * @param startTime The start of the appointment.
+     * @param endTime The end of the appointment.
+     * @param userTimeZone The time zone of the user, used to decide whether the start is in the past.
+     * @param customerID The customer of the appointment.
+     * @param appointmentID The appointment being edited, which is ignored by the overlap check, or -1 for a new one.
+     * @return The first check that failed, or null if the appointment can be saved.
+     */
+    public static ValidationError checkAppointment(ZonedDateTime startTime, ZonedDateTime endTime, ZoneId userTimeZone, int customerID, int appointmentID) {
+        ValidationError timeError = checkTimes(startTime, endTime, userTimeZone);
+        if (timeError != null) {
+            return timeError;
         }
 
         // Check for overlapping appointments
-        if (hasOverlappingAppointments(startTime.toLocalDateTime(), endTime.toLocalDateTime(), customerID)) {
-            showAlert("Overlap Error", "This appointment overlaps with an existing one.");
-            return false;
+        String overlapError = checkOverlap(toUTC(startTime), toUTC(endTime), customerID, appointmentID);
+        if (overlapError != null) {
+            return new ValidationError("Overlap Error", overlapError);
         }
+        return null;
+    }
 
-        // If all checks pass, proceed to save the appointment
-        return true;
+    /**
+     * Runs the checks of {@link #checkAppointment} on every occurrence of a recurring series. The time checks run
+     * per occurrence; the overlap check runs once for the whole series with
+     * {@link AppointmentIndex#findOverlappingSeries}, so the customer's appointments are scanned a single time.
+     * With {@code -Dappointments.overlapCheck=database} the customer's appointments within the span of the series
+     * are read with one query instead and walked the same way.
+     * @param starts The start of every occurrence, in order, as expanded by {@link model.Recurrence#expand}.
+     * @param duration The length of each occurrence.
+     * @param userTimeZone The time zone of the user, used to decide whether a start is in the past.
+     * @param customerID The customer of the series.
+     * @return The first check that failed, naming the occurrence, or null if the whole series can be saved.
+     */
+    public static ValidationError checkSeries(List<ZonedDateTime> starts, Duration duration, ZoneId userTimeZone, int customerID) {
+        List<Appointment> intervals = new ArrayList<>(starts.size());
+        for (ZonedDateTime start : starts) {
+            ZonedDateTime end = start.plus(duration);
+            ValidationError timeError = checkTimes(start, end, userTimeZone);
+            if (timeError != null) {
+                return new ValidationError(timeError.getTitle(),
+                        "The occurrence on " + start.toLocalDate() + " cannot be saved. " + timeError.getMessage());
+            }
+            if (!intervals.isEmpty() && intervals.get(intervals.size() - 1).getEndDate().isAfter(toUTC(start))) {
+                return new ValidationError("Overlap Error", "The occurrences of the series overlap each other.");
+            }
+            intervals.add(new Appointment(0, null, null, null, toUTC(start), toUTC(end), customerID));
+        }
+
+        Map<Integer, List<Appointment>> overlapping;
+        try {
+            if (useDatabaseOverlapCheck) {
+                // One range query for the whole series instead of an EXISTS query per occurrence
+                overlapping = AppointmentIndex.findOverlappingSeriesInDatabase(customerID, intervals);
+            } else {
+                overlapping = AppointmentIndex.findOverlappingSeries(customerID, intervals);
+            }
+        } catch (SQLException e) {
+            log.error("Overlap check failed for customer " + customerID, e);
+            return new ValidationError("Overlap Error", "The series could not be checked for overlaps.");
+        }
+        if (overlapping.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, List<Appointment>> first = overlapping.entrySet().iterator().next();
+        return new ValidationError("Overlap Error", overlapping.size() + " occurrence(s) overlap existing appointments. " +
+                "The occurrence on " + starts.get(first.getKey()).toLocalDate() + " overlaps appointment(s) " +
+                first.getValue().stream().map(a -> String.valueOf(a.getAppointmentID())).collect(Collectors.joining(", ")) + ".");
+    }
+
+    private static LocalDateTime toUTC(ZonedDateTime time) {
+        return time.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
     }
-    public static boolean validateAppointment(ZonedDateTime startTime, ZonedDateTime endTime, ZoneId userTimeZone, int customerID, int appointmentID) {
 
+    /**
+     * Runs the checks that depend only on the times of an appointment.
+     * @return The first check that failed, or null if the times are valid.
+     */
+    private static ValidationError checkTimes(ZonedDateTime startTime, ZonedDateTime endTime, ZoneId userTimeZone) {
+
+        // Check if the selected time is in the past
         ZonedDateTime now = ZonedDateTime.now(userTimeZone);
         if (startTime.isBefore(now)) {
-            showAlert("Invalid Date/Time", "Cannot schedule appointments in the past.");
-            return false;
+            return new ValidationError("Invalid Date/Time", "Cannot schedule appointments in the past.");
         }
 
         // Check if the end time is before the start time
         if (endTime.isBefore(startTime)) {
-            showAlert("Invalid Date/Time", "End time cannot be before start time.");
-            return false;
+            return new ValidationError("Invalid Date/Time", "End time cannot be before start time.");
         }
 
         // Check for minimum duration of 15 minutes
         if (Duration.between(startTime, endTime).toMinutes() < 15) {
-            showAlert("Duration Error", "Appointments must be at least 15 minutes long.");
-            return false;
+            return new ValidationError("Duration Error", "Appointments must be at least 15 minutes long.");
         }
 
         // Check business hours in ET
         if (!isWithinBusinessHours(startTime, endTime)) {
-            showAlert("Business Hours Violation", "Appointment must be between 08:00 and 10:00 ET.");
-            return false;
+            return new ValidationError("Business Hours Violation", "Appointment must be between 08:00 and 10:00 ET.");
         }
-
-        // Check for overlapping appointments
-        if (hasOverlappingAppointments(startTime.toLocalDateTime(), endTime.toLocalDateTime(), customerID, appointmentID)) {
-            showAlert("Overlap Error", "This appointment overlaps with an existing one.");
-            return false;
-        }
-
-        // If all checks pass, proceed to save the appointment
-        return true;
+        return null;
     }
 
     private static boolean isWithinBusinessHours(ZonedDateTime startTime, ZonedDateTime endTime) {
 
-        ZonedDateTime startET = startTime.withZoneSameInstant(ZoneId.of("America/New_York"));
-        ZonedDateTime endET = endTime.withZoneSameInstant(ZoneId.of("America/New_York"));
-
-        LocalTime businessStart = LocalTime.of(8, 0);
-        LocalTime businessEnd = LocalTime.of(22, 0);
+        ZonedDateTime startET = startTime.withZoneSameInstant(businessZone);
+        ZonedDateTime endET = endTime.withZoneSameInstant(businessZone);
 
         return !startET.toLocalTime().isBefore(businessStart) && !endET.toLocalTime().isAfter(businessEnd);
     }
 
-    private static boolean hasOverlappingAppointments(LocalDateTime startUTC, LocalDateTime endUTC, int customerID) {
-        List<Appointment> existingAppointments = getAllAppointmentsForCustomer(customerID);
-        for (Appointment existing : existingAppointments) {
-            if (existing.getCustomerID() == customerID &&
-                    startUTC.isBefore(existing.getEndDate()) &&
-                    endUTC.isAfter(existing.getStartDate())) {
-                return true;  // Overlapping detected
-            }
-        }
-        return false;  // No overlap
+    /**
+     * Converts a time stored in UTC to the signed-in user's time zone, for display.
+     * @param utc The time in UTC.
+     * @return The same instant in the user's time zone.
+     */
+    public static LocalDateTime toUserTime(LocalDateTime utc) {
+        return utc.atZone(ZoneOffset.UTC).withZoneSameInstant(getUserZone()).toLocalDateTime();
+    }
+
+    /**
+     * Formats a time stored in UTC in the signed-in user's time zone, in the short localized style
+     * used by the appointment tables.
+     * @param utc The time in UTC.
+     * @return The formatted time.
+     */
+    public static String formatUserTime(LocalDateTime utc) {
+        return shortDateTime.format(utc.atZone(ZoneOffset.UTC).withZoneSameInstant(getUserZone()));
+    }
+
+    /**
+     * Finds the customer's appointments overlapping the given UTC interval, using the in-memory appointment index.
+     * @param startUTC The start of the interval, in UTC.
+     * @param endUTC The end of the interval, in UTC.
+     * @param customerID The customer whose appointments are checked.
+     * @param editingAppointmentId The appointment being edited, which is ignored, or -1 for a new appointment.
+     * @return The overlapping appointments; empty if there are none.
+     * @throws SQLException if the customer's appointments have to be loaded and cannot be read.
+     */
+    public static List<Appointment> findOverlappingAppointments(LocalDateTime startUTC, LocalDateTime endUTC, int customerID, int editingAppointmentId) throws SQLException {
+        return AppointmentIndex.findOverlapping(customerID, startUTC, endUTC, editingAppointmentId);
     }
-    private static boolean hasOverlappingAppointments(LocalDateTime startUTC, LocalDateTime endUTC, int customerID, int editingAppointmentId) {
-        List<Appointment> existingAppointments = getAllAppointmentsForCustomer(customerID);
-        for (Appointment existing : existingAppointments) {
-            // Check if the existing appointment is not the one being edited
-            if (existing.getAppointmentID() != editingAppointmentId &&
-                    startUTC.isBefore(existing.getEndDate()) &&
-                    endUTC.isAfter(existing.getStartDate())) {
-                return true;  // Overlapping detected
+
+    /**
+     * Runs the overlap check. By default the in-memory appointment index is used, which can name the
+     * conflicting appointments; with {@code -Dappointments.overlapCheck=database} the check is a single
+     * indexed EXISTS query instead, so the customer's appointments are never loaded into memory.
+     * If the appointments cannot be read, the check fails rather than letting the appointment through.
+     * @return The message to show if the interval overlaps an appointment or could not be checked, or null
+     * if it does not overlap.
+     */
+    private static String checkOverlap(LocalDateTime startUTC, LocalDateTime endUTC, int customerID, int editingAppointmentId) {
+        try {
+            if (useDatabaseOverlapCheck) {
+                return hasOverlappingAppointment(customerID, startUTC, endUTC, editingAppointmentId)
+                        ? "This appointment overlaps with an existing one." : null;
+            }
+            List<Appointment> overlapping = findOverlappingAppointments(startUTC, endUTC, customerID, editingAppointmentId);
+            if (overlapping.isEmpty()) {
+                return null;
             }
+            return "This appointment overlaps with existing appointment(s) " +
+                    overlapping.stream().map(a -> String.valueOf(a.getAppointmentID())).collect(Collectors.joining(", ")) + ".";
+        } catch (SQLException e) {
+            log.error("Overlap check failed for customer " + customerID, e);
+            return "The appointment could not be checked for overlaps.";
         }
-        return false;  // No overlap
     }
 
     public static void showAlert(String title, String message) {
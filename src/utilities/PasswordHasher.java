@@ -0,0 +1,184 @@
+package utilities;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies user passwords with salted PBKDF2-HMAC-SHA256.
+ * <p>
+ * A hash is stored as {@code pbkdf2-sha256$<iterations>$<salt>$<hash>} with Base64 salt and hash, so the cost
+ * it was made with travels with it. The cost of new hashes is set with {@code password.iterations}
+ * (120000 by default, a few tens of milliseconds). When a user logs in with a hash made at a different cost,
+ * or with a password still stored in plain text, {@link Verification#needsRehash()} tells the caller to
+ * store a new hash.
+ * <p>
+ * Verification is deliberately slow, so {@link #verifyAsync(String, String)} runs it on a small bounded pool
+ * ({@code password.verifierThreads}, the number of processors by default) instead of the JavaFX
+ * application thread. Concurrent logins verify in parallel up to the pool size; beyond
+ * {@code password.verifierQueue} waiting verifications (64 by default) new ones are rejected.
+ */
+public class PasswordHasher {
+    private static final Log log = Log.get(PasswordHasher.class);
+
+    private static final String algorithm = "PBKDF2WithHmacSHA256";
+    private static final String prefix = "pbkdf2-sha256";
+    private static final int iterations = Integer.getInteger("password.iterations", 120_000);
+    private static final int saltBytes = 16;
+    private static final int hashBits = 256;
+    private static final int verifierThreads = Integer.getInteger("password.verifierThreads", Runtime.getRuntime().availableProcessors());
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ThreadPoolExecutor verifiers = new ThreadPoolExecutor(
+            verifierThreads, verifierThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Integer.getInteger("password.verifierQueue", 64)),
+            r -> {
+                Thread t = new Thread(r, "password-verifier-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Holds the hash checked against when a user does not exist; made on first use.
+     */
+    private static final class UnknownUser {
+        private static final String hash = PasswordHasher.hash("unknown-user");
+    }
+
+    /**
+     * The outcome of checking a password against a stored hash.
+     */
+    public static final class Verification {
+        private static final Verification mismatch = new Verification(false, false);
+
+        private final boolean matches;
+        private final boolean needsRehash;
+
+        private Verification(boolean matches, boolean needsRehash) {
+            this.matches = matches;
+            this.needsRehash = needsRehash;
+        }
+
+        public boolean matches() {
+            return matches;
+        }
+
+        /**
+         * Tells whether the stored value should be replaced by {@link #hash(String)} of the password
+         * just verified, because it is in plain text or was made at a different cost.
+         * @return true if the password matched and should be hashed again.
+         */
+        public boolean needsRehash() {
+            return needsRehash;
+        }
+    }
+
+    /**
+     * Hashes a password with a new random salt at the configured cost.
+     * @param password The password to hash.
+     * @return The encoded hash, ready to be stored.
+     */
+    public static String hash(String password) {
+        return hash(password, iterations);
+    }
+
+    /**
+     * Hashes a password with a new random salt at the given cost.
+     * @param password The password to hash.
+     * @param iterations The number of PBKDF2 iterations.
+     * @return The encoded hash, ready to be stored.
+     */
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[saltBytes];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations, hashBits);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return prefix + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored value on the calling thread. Values that are not in the hash
+     * format are treated as plain text, so existing accounts keep working until they are rehashed.
+     * The comparison takes the same time wherever the first difference is.
+     * @param password The password entered by the user.
+     * @param stored The value stored for the user, or null if there is no such user.
+     * @return Whether the password matches and whether the stored value should be rehashed.
+     */
+    public static Verification verify(String password, String stored) {
+        if (password == null) {
+            return Verification.mismatch;
+        }
+        if (stored == null) {
+            // Spend as long as a wrong password would, so timing does not reveal which usernames exist
+            verify(password, UnknownUser.hash);
+            return Verification.mismatch;
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !prefix.equals(parts[0])) {
+            boolean matches = MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+            return matches ? new Verification(true, true) : Verification.mismatch;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            Base64.Decoder base64 = Base64.getDecoder();
+            byte[] salt = base64.decode(parts[2]);
+            byte[] expected = base64.decode(parts[3]);
+            byte[] actual = pbkdf2(password, salt, storedIterations, expected.length * 8);
+            boolean matches = MessageDigest.isEqual(expected, actual);
+            return matches ? new Verification(true, storedIterations != iterations) : Verification.mismatch;
+        } catch (IllegalArgumentException e) {
+            log.warn("Stored password hash is malformed", e);
+            return Verification.mismatch;
+        }
+    }
+
+    /**
+     * Checks a password against a stored value on the verifier pool.
+     * @param password The password entered by the user.
+     * @param stored The value stored for the user.
+     * @return A future completed with the verification, or completed exceptionally if too many
+     * verifications are already waiting.
+     */
+    public static CompletableFuture<Verification> verifyAsync(String password, String stored) {
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(password, stored), verifiers);
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many logins waiting for password verification");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Gets the number of PBKDF2 iterations new hashes are made with.
+     * @return The configured cost.
+     */
+    public static int getIterations() {
+        return iterations;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int bits) {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(algorithm).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+}
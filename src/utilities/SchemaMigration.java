@@ -0,0 +1,92 @@
+package utilities;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies versioned schema changes (mostly indexes) to the {@code client_schedule} database.
+ * Applied versions are recorded in the {@code schema_version} table, so each migration runs once per database.
+ * New migrations are appended to {@link #migrations} with the next version number; existing ones must never change.
+ */
+public class SchemaMigration {
+    private static final Log log = Log.get(SchemaMigration.class);
+    private static final int duplicateKeyName = 1061; // MySQL ER_DUP_KEYNAME
+
+    /**
+     * A single schema change.
+     */
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final String sql;
+
+        private Migration(int version, String description, String sql) {
+            this.version = version;
+            this.description = description;
+            this.sql = sql;
+        }
+    }
+
+    private static final List<Migration> migrations = List.of(
+            new Migration(1, "Index appointments by customer and time for overlap checks",
+                    "CREATE INDEX idx_appointments_customer_start_end ON appointments (Customer_ID, Start, End)"),
+            new Migration(2, "Index appointments by start time for date range reports",
+                    "CREATE INDEX idx_appointments_start_type ON appointments (Start, Type)"),
+            new Migration(3, "Index appointments by contact and time for free slot searches",
+                    "CREATE INDEX idx_appointments_contact_start_end ON appointments (Contact_ID, Start, End)")
+    );
+
+    /**
+     * Applies every migration that has not been recorded in {@code schema_version} yet, in version order.
+     * Each migration is recorded right after it succeeds; the first failure stops the run.
+     * @param conn The connection to run the migrations on.
+     * @throws SQLException if the version table cannot be read or a migration fails.
+     */
+    public static void migrate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                       "Version INT PRIMARY KEY, " +
+                       "Description VARCHAR(255) NOT NULL, " +
+                       "Applied_On DATETIME NOT NULL)");
+        }
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT Version FROM schema_version")) {
+            while (rs.next()) {
+                applied.add(rs.getInt("Version"));
+            }
+        }
+
+        for (Migration migration : migrations) {
+            if (applied.contains(migration.version)) {
+                continue;
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute(migration.sql);
+            } catch (SQLException e) {
+                // The index was already created by hand; just record it.
+                if (e.getErrorCode() != duplicateKeyName) {
+                    throw e;
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO schema_version (Version, Description, Applied_On) VALUES (?, ?, ?)")) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now(ZoneOffset.UTC)));
+                ps.executeUpdate();
+            }
+            log.info("Applied schema migration " + migration.version + ": " + migration.description);
+        }
+    }
+}
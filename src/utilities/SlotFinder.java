@@ -0,0 +1,207 @@
+package utilities;
+
+import model.Appointment;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static DAO.AppointmentDAO.getContactBusyIntervals;
+import static utilities.ManageState.businessEnd;
+import static utilities.ManageState.businessStart;
+import static utilities.ManageState.businessZone;
+
+/**
+ * Suggests free times for an appointment. The busy times of the customer (from the {@link AppointmentIndex})
+ * and of the contact (one indexed range query) are merged into a sorted list of disjoint intervals, which is
+ * then swept once, day by day, against the 08:00 to 22:00 business hours in America/New_York. Each day's
+ * business hours are computed from its own ET date, so the search follows daylight saving changes.
+ * <p>
+ * Suggested starts are aligned to {@code appointments.slotStepMinutes} (15 by default), and consecutive
+ * suggestions within one free gap are one duration apart.
+ */
+public class SlotFinder {
+    private static final Log log = Log.get(SlotFinder.class);
+    private static final int stepMinutes = Integer.getInteger("appointments.slotStepMinutes", 15);
+
+    public static final int suggestionCount = Integer.getInteger("appointments.suggestedSlots", 5); // Slots offered by the forms
+    public static final int searchDays = Integer.getInteger("appointments.slotSearchDays", 14);     // Days searched by the forms
+
+    /**
+     * A free time for an appointment, in the user's time zone.
+     */
+    public static final class Slot {
+        private final ZonedDateTime start;
+        private final ZonedDateTime end;
+
+        private Slot(ZonedDateTime start, ZonedDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public ZonedDateTime getStart() {
+            return start;
+        }
+
+        public ZonedDateTime getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return start.toLocalDate() + " " + start.toLocalTime() + " - " + end.toLocalTime();
+        }
+    }
+
+    /**
+     * Finds the free slots the appointment forms suggest: the earliest {@link #suggestionCount} slots in the
+     * {@link #searchDays} days from the given date, each as long as the given start and end times on one day.
+     * @param customerID The customer of the appointment.
+     * @param contactID The contact of the appointment.
+     * @param startTime The start time entered in the form.
+     * @param endTime The end time entered in the form.
+     * @param from The first day to search, in the user's time zone.
+     * @param userZone The time zone of the user; the slots are returned in it.
+     * @param excludedAppointmentID The appointment being edited, whose time counts as free, or -1.
+     * @return Up to {@link #suggestionCount} free slots in chronological order; empty if there are none.
+     * @throws SQLException if the contact's appointments cannot be read.
+     */
+    public static List<Slot> suggestFreeSlots(int customerID, int contactID, LocalTime startTime, LocalTime endTime,
+                                              LocalDate from, ZoneId userZone, int excludedAppointmentID) throws SQLException {
+        return findFreeSlots(customerID, contactID, Duration.between(startTime, endTime), from, from.plusDays(searchDays - 1),
+                userZone, suggestionCount, excludedAppointmentID);
+    }
+
+    /**
+     * Finds the earliest free slots for an appointment between a customer and a contact.
+     * @param customerID The customer of the appointment.
+     * @param contactID The contact of the appointment.
+     * @param duration The length of the appointment.
+     * @param from The first day to search, in the user's time zone.
+     * @param to The last day to search, in the user's time zone.
+     * @param userZone The time zone of the user; the slots are returned in it.
+     * @param limit The maximum number of slots to return.
+     * @param excludedAppointmentID The appointment being edited, whose time counts as free, or -1.
+     * @return Up to {@code limit} free slots in chronological order; empty if there are none.
+     * @throws SQLException if the contact's appointments cannot be read.
+     */
+    public static List<Slot> findFreeSlots(int customerID, int contactID, Duration duration, LocalDate from, LocalDate to,
+                                           ZoneId userZone, int limit, int excludedAppointmentID) throws SQLException {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        LocalDateTime rangeStart = toUTC(from.atStartOfDay(userZone));
+        if (rangeStart.isBefore(now)) {
+            rangeStart = now;
+        }
+        LocalDateTime rangeEnd = toUTC(to.plusDays(1).atStartOfDay(userZone));
+        if (!rangeStart.isBefore(rangeEnd)) {
+            return new ArrayList<>();
+        }
+
+        List<Appointment> busy = new ArrayList<>(AppointmentIndex.findOverlapping(customerID, rangeStart, rangeEnd, excludedAppointmentID));
+        busy.addAll(getContactBusyIntervals(contactID, rangeStart, rangeEnd, excludedAppointmentID));
+        List<Slot> slots = findFreeSlots(busy, duration, rangeStart, rangeEnd, userZone, limit);
+
+        long micros = (System.nanoTime() - started) / 1000;
+        log.debug(() -> "Found " + slots.size() + " free slots among " + busy.size() + " busy intervals in " + micros + " us");
+        return slots;
+    }
+
+    /**
+     * Finds the earliest free slots outside the given busy intervals. Used by
+     * {@link #findFreeSlots(int, int, Duration, LocalDate, LocalDate, ZoneId, int, int)} once the busy
+     * intervals are loaded.
+     * @param busy The busy intervals, with UTC start and end times, in any order and possibly overlapping.
+     * @param duration The length of the appointment.
+     * @param rangeStart The start of the search, in UTC.
+     * @param rangeEnd The end of the search, in UTC.
+     * @param userZone The time zone the slots are returned in.
+     * @param limit The maximum number of slots to return.
+     * @return Up to {@code limit} free slots in chronological order.
+     */
+    public static List<Slot> findFreeSlots(List<Appointment> busy, Duration duration, LocalDateTime rangeStart,
+                                           LocalDateTime rangeEnd, ZoneId userZone, int limit) {
+        List<Slot> slots = new ArrayList<>();
+        if (duration.isZero() || duration.isNegative() || limit <= 0) {
+            return slots;
+        }
+        List<LocalDateTime[]> merged = merge(busy);
+
+        int next = 0; // The first merged interval that ends after the cursor
+        LocalDate lastDay = rangeEnd.atOffset(ZoneOffset.UTC).atZoneSameInstant(businessZone).toLocalDate();
+        for (LocalDate day = rangeStart.atOffset(ZoneOffset.UTC).atZoneSameInstant(businessZone).toLocalDate();
+             !day.isAfter(lastDay) && slots.size() < limit; day = day.plusDays(1)) {
+            LocalDateTime windowStart = max(toUTC(day.atTime(businessStart).atZone(businessZone)), rangeStart);
+            LocalDateTime windowEnd = min(toUTC(day.atTime(businessEnd).atZone(businessZone)), rangeEnd);
+
+            LocalDateTime cursor = alignUp(windowStart);
+            while (slots.size() < limit) {
+                LocalDateTime end = cursor.plus(duration);
+                if (end.isAfter(windowEnd)) {
+                    break;
+                }
+                while (next < merged.size() && !merged.get(next)[1].isAfter(cursor)) {
+                    next++;
+                }
+                if (next < merged.size() && merged.get(next)[0].isBefore(end)) {
+                    // The slot runs into a busy interval; continue after it.
+                    cursor = alignUp(max(cursor, merged.get(next)[1]));
+                    continue;
+                }
+                slots.add(new Slot(cursor.atZone(ZoneOffset.UTC).withZoneSameInstant(userZone),
+                        end.atZone(ZoneOffset.UTC).withZoneSameInstant(userZone)));
+                cursor = end;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Merges busy intervals into disjoint intervals ordered by start time.
+     * @return The merged intervals as {start, end} pairs, in UTC.
+     */
+    private static List<LocalDateTime[]> merge(List<Appointment> busy) {
+        List<Appointment> sorted = new ArrayList<>(busy);
+        sorted.sort(Comparator.comparing(Appointment::getStartDate));
+        List<LocalDateTime[]> merged = new ArrayList<>();
+        for (Appointment appointment : sorted) {
+            LocalDateTime[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !appointment.getStartDate().isAfter(last[1])) {
+                last[1] = max(last[1], appointment.getEndDate());
+            } else {
+                merged.add(new LocalDateTime[]{appointment.getStartDate(), appointment.getEndDate()});
+            }
+        }
+        return merged;
+    }
+
+    private static LocalDateTime alignUp(LocalDateTime time) {
+        LocalDateTime minute = time.truncatedTo(ChronoUnit.MINUTES);
+        if (minute.isBefore(time)) {
+            minute = minute.plusMinutes(1);
+        }
+        int remainder = minute.getMinute() % stepMinutes;
+        return remainder == 0 ? minute : minute.plusMinutes(stepMinutes - remainder);
+    }
+
+    private static LocalDateTime toUTC(ZonedDateTime time) {
+        return time.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,157 @@
+package utilities;
+
+import DAO.ReferenceData;
+import javafx.fxml.FXMLLoader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the application up in the background while the user types their credentials, so the dashboard
+ * opens quickly after login. The warm-up runs these phases one after the other on a daemon thread:
+ * <ol>
+ *     <li>opens the connection pool, which loads the JDBC driver and applies the schema migrations,</li>
+ *     <li>runs a trivial query so the driver's statement and result set classes are loaded,</li>
+ *     <li>loads the {@link ReferenceData},</li>
+ *     <li>parses the main screen, which {@link ManageState#getScene(String)} picks up at login if it is ready,</li>
+ *     <li>parses the views shown from the sidebar into the {@link ViewCache}.</li>
+ * </ol>
+ * Views are only parsed: their controllers' {@code initialize} sets them up without reading appointments or
+ * touching shared state, and their data is loaded on the JavaFX application thread when they are shown.
+ * Each phase is timed and logged. A failing phase is logged and skipped, and whatever it would have
+ * prepared is simply loaded on demand later. The warm-up can be turned off with {@code -Dstartup.prewarm=false}.
+ */
+public class Startup {
+    private static final Log log = Log.get(Startup.class);
+    private static final boolean enabled = !"false".equalsIgnoreCase(System.getProperty("startup.prewarm"));
+    private static final String mainScreen = "/view/MainScreen.fxml";
+    private static final List<String> views = List.of("/view/Overview.fxml", "/view/Appointments.fxml", "/view/Customers.fxml");
+
+    private static final Map<String, CompletableFuture<FXMLLoader>> preloaded = new ConcurrentHashMap<>();
+    private static long launchedAtNanos = System.nanoTime();
+
+    /**
+     * A step of the warm-up.
+     */
+    private interface Phase {
+        void run() throws Exception;
+    }
+
+    /**
+     * Records the moment the application was launched; startup milestones are reported relative to it.
+     */
+    public static void begin() {
+        launchedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Logs how long after launch a startup milestone was reached.
+     * @param milestone The milestone, e.g. "login form shown".
+     */
+    public static void milestone(String milestone) {
+        log.info("Startup: " + milestone + " after " + elapsedMillis(launchedAtNanos) + " ms");
+    }
+
+    /**
+     * Starts the background warm-up. Does nothing if it is disabled.
+     * @param resourceBundle The resource bundle used to localize the pre-parsed views.
+     */
+    public static void prewarm(ResourceBundle resourceBundle) {
+        if (!enabled) {
+            return;
+        }
+        CompletableFuture<FXMLLoader> mainScreenLoader = new CompletableFuture<>();
+        preloaded.put(mainScreen, mainScreenLoader);
+
+        Thread t = new Thread(() -> {
+            long started = System.nanoTime();
+            phase("connection pool", () -> {
+                if (DBConnection.openConnection() == null) {
+                    throw new SQLException("Database not available.");
+                }
+            });
+            phase("JDBC warm-up", Startup::warmJdbc);
+            phase("reference data", () -> ReferenceData.load().join());
+            phase("main screen", () -> {
+                if (mainScreenLoader.isDone()) {
+                    return; // Login came first and parsed its own main screen
+                }
+                try {
+                    FXMLLoader loader = new FXMLLoader(Startup.class.getResource(mainScreen), resourceBundle);
+                    loader.load();
+                    mainScreenLoader.complete(loader);
+                } catch (Exception e) {
+                    mainScreenLoader.completeExceptionally(e);
+                    throw e;
+                }
+            });
+            for (String view : views) {
+                phase(view, () -> ViewCache.preload(view, resourceBundle));
+            }
+            log.info("Startup warm-up finished in " + elapsedMillis(started) + " ms");
+        }, "startup-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Takes a view pre-parsed by the warm-up if it is ready. This is called on the JavaFX application thread,
+     * so it never waits for the warm-up: a view still being parsed is given up and the caller parses it itself.
+     * Each pre-parsed view is handed out once.
+     * @param fxml The path of the FXML file.
+     * @return The loader holding the parsed root and its controller, or null if the view was not pre-parsed,
+     * is not parsed yet, or parsing it failed.
+     */
+    public static FXMLLoader takePreloaded(String fxml) {
+        CompletableFuture<FXMLLoader> loader = preloaded.remove(fxml);
+        if (loader == null || !loader.isDone()) {
+            if (loader != null) {
+                loader.cancel(false); // Tells the warm-up not to parse it any more
+            }
+            log.debug(() -> "View not pre-parsed in time, loading it now: " + fxml);
+            return null;
+        }
+        try {
+            return loader.getNow(null);
+        } catch (CompletionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a phase, logging how long it took or why it failed.
+     */
+    private static void phase(String name, Phase phase) {
+        long started = System.nanoTime();
+        try {
+            phase.run();
+            log.info("Startup phase '" + name + "' took " + elapsedMillis(started) + " ms");
+        } catch (Exception e) {
+            log.warn("Startup phase '" + name + "' failed after " + elapsedMillis(started) + " ms", e);
+        }
+    }
+
+    /**
+     * Runs a trivial query so the driver classes used by every later query are loaded and initialized.
+     */
+    private static void warmJdbc() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT 1");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+        }
+    }
+
+    private static long elapsedMillis(long startedAtNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos);
+    }
+}
@@ -0,0 +1,157 @@
+package utilities;
+
+import DAO.AsyncDAO;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Feeds a TableView one page at a time. The first page is loaded when {@link #start()} is called, and
+ * the next one whenever the user scrolls close to the bottom of the table, so only the rows the user
+ * actually scrolls to are fetched and kept in memory. Pages are loaded off the JavaFX thread.
+ * <p>
+ * If the table's items are replaced (for example by a filter), the pager stops appending to it.
+ * If a page fails to load, the error is reported and the page is requested again on the next scroll.
+ * @param <T> The type of the table rows.
+ */
+public class TablePager<T> {
+
+    /**
+     * Fetches the page following a given row.
+     * @param <T> The type of the rows.
+     */
+    public interface PageQuery<T> {
+        /**
+         * Fetches the next page of rows.
+         * @param lastRow The last row already loaded, or null for the first page.
+         * @param pageSize The maximum number of rows to fetch.
+         * @return The rows of the page; fewer than {@code pageSize} means there are no more pages.
+         */
+        List<T> fetch(T lastRow, int pageSize);
+    }
+
+    private static final double loadThreshold = 0.9; // Load the next page at 90% of the scroll range
+
+    private final TableView<T> table;
+    private final PageQuery<T> query;
+    private final int pageSize;
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private boolean started;
+    private boolean loading;
+    private boolean exhausted;
+    private int generation; // Incremented by reload() so pages requested before it are discarded
+    private ScrollBar watchedBar; // The vertical scroll bar the scroll listener is attached to, if any
+    private final ChangeListener<Number> scrollListener = (obs, oldValue, newValue) -> {
+        if (newValue.doubleValue() >= watchedBar.getMax() * loadThreshold) {
+            loadNextPage();
+        }
+    };
+
+    /**
+     * Creates a pager for a table.
+     * @param table The table to feed.
+     * @param query The query returning the page after a given row.
+     * @param pageSize The number of rows fetched per page.
+     */
+    public TablePager(TableView<T> table, PageQuery<T> query, int pageSize) {
+        this.table = table;
+        this.query = query;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Binds the pager's items to the table, loads the first page and starts watching the scroll position.
+     */
+    public void start() {
+        started = true;
+        table.setItems(items);
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> watchScrollBar());
+        if (table.getSkin() != null) {
+            watchScrollBar();
+        }
+        loadNextPage();
+    }
+
+    /**
+     * Drops the loaded rows, binds the pager's items to the table again and loads the first page.
+     * Used each time a reused view is shown; the first call starts the pager.
+     */
+    public void reload() {
+        if (!started) {
+            start();
+            return;
+        }
+        generation++;
+        items.clear();
+        loading = false;
+        exhausted = false;
+        table.setItems(items);
+        loadNextPage();
+    }
+
+    /**
+     * Loads the next page unless one is already loading, all rows are loaded, or the table shows other items.
+     */
+    private void loadNextPage() {
+        if (loading || exhausted || table.getItems() != items) {
+            return;
+        }
+        loading = true;
+        int requestedGeneration = generation;
+        T lastRow = items.isEmpty() ? null : items.get(items.size() - 1);
+        CompletableFuture<List<T>> page = AsyncDAO.supplyAsync(() -> query.fetch(lastRow, pageSize));
+        AsyncDAO.runOnFxThread(() -> {
+            if (requestedGeneration != generation) {
+                return;
+            }
+            List<T> rows = page.join();
+            loading = false;
+            if (rows.size() < pageSize) {
+                exhausted = true;
+            }
+            if (table.getItems() == items) {
+                items.addAll(rows);
+            }
+        }, page);
+        // runOnFxThread skips the block above when the query fails, so clear the flag here for that case
+        page.whenComplete((rows, error) -> {
+            if (error != null) {
+                Platform.runLater(() -> {
+                    if (requestedGeneration == generation) {
+                        loading = false;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Attaches the scroll listener to the table's vertical scroll bar, so the next page loads near the bottom.
+     * The scroll bar only exists once the table's skin has been created, and a new skin brings a new bar, so
+     * the listener is moved from the previous bar rather than added again.
+     */
+    private void watchScrollBar() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar bar = (ScrollBar) node;
+                if (bar == watchedBar) {
+                    return;
+                }
+                if (watchedBar != null) {
+                    watchedBar.valueProperty().removeListener(scrollListener);
+                }
+                watchedBar = bar;
+                bar.valueProperty().addListener(scrollListener);
+                return;
+            }
+        }
+    }
+}
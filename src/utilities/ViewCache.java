@@ -0,0 +1,124 @@
+package utilities;
+
+import controller.Refreshable;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * Keeps loaded views alive so each FXML file is parsed once. Each time a view is shown, including the first,
+ * its controller's {@link Refreshable#refresh()} loads the data, and a cached view is returned without
+ * reparsing the FXML or rebuilding the scene graph.
+ * <p>
+ * Only views whose controller implements {@link Refreshable} are cached. At most {@code views.cacheSize}
+ * views (8 by default) are kept, dropping the least recently shown first. The views are held through soft
+ * references, so the JVM can also drop them when memory runs low, and they are simply reloaded the next time.
+ * Cached views are refreshed and shown on the JavaFX application thread, but {@link #preload(String, ResourceBundle)}
+ * may also be called from a background thread to parse a view before it is first needed; it does not refresh
+ * the view, so no data is read until the view is shown. Views are parsed
+ * without holding the cache's lock, so the application thread never waits for a background parse.
+ */
+public class ViewCache {
+    private static final Log log = Log.get(ViewCache.class);
+    private static final int maxViews = Integer.getInteger("views.cacheSize", 8);
+
+    // Access order, so the eldest entry is the least recently shown view
+    private static final Map<String, SoftReference<CachedView>> views = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<CachedView>> eldest) {
+            return size() > maxViews;
+        }
+    };
+
+    /**
+     * A loaded view and its controller.
+     */
+    private static class CachedView {
+        private final Node view;
+        private final Refreshable controller;
+
+        private CachedView(Node view, Refreshable controller) {
+            this.view = view;
+            this.controller = controller;
+        }
+    }
+
+    /**
+     * Gets a view, reusing the cached one if there is one or loading it from FXML otherwise, and refreshes it.
+     * @param fxml The path of the FXML file.
+     * @param resourceBundle The resource bundle used to localize the view.
+     * @return The root node of the view.
+     * @throws IOException if the FXML file cannot be loaded.
+     */
+    public static Node get(String fxml, ResourceBundle resourceBundle) throws IOException {
+        SoftReference<CachedView> reference;
+        synchronized (ViewCache.class) {
+            reference = views.get(fxml);
+        }
+        CachedView cached = reference != null ? reference.get() : null;
+        if (cached != null) {
+            cached.controller.refresh();
+            return cached.view;
+        }
+        if (reference != null) {
+            log.debug(() -> "View was reclaimed under memory pressure, reloading: " + fxml);
+        }
+        FXMLLoader loader = load(fxml, resourceBundle);
+        if (loader.getController() instanceof Refreshable) {
+            ((Refreshable) loader.getController()).refresh();
+        }
+        return loader.getRoot();
+    }
+
+    /**
+     * Parses a view and caches it if its controller is {@link Refreshable}, without refreshing it, so it is
+     * ready when first shown. Does nothing if the view is already cached.
+     * @param fxml The path of the FXML file.
+     * @param resourceBundle The resource bundle used to localize the view.
+     * @throws IOException if the FXML file cannot be loaded.
+     */
+    public static void preload(String fxml, ResourceBundle resourceBundle) throws IOException {
+        synchronized (ViewCache.class) {
+            SoftReference<CachedView> reference = views.get(fxml);
+            if (reference != null && reference.get() != null) {
+                return;
+            }
+        }
+        load(fxml, resourceBundle);
+    }
+
+    /**
+     * Loads a view from FXML and caches it if its controller is {@link Refreshable}.
+     */
+    private static FXMLLoader load(String fxml, ResourceBundle resourceBundle) throws IOException {
+        FXMLLoader loader = new FXMLLoader(ViewCache.class.getResource(fxml), resourceBundle);
+        Node view = loader.load();
+        Object controller = loader.getController();
+        if (controller instanceof Refreshable) {
+            synchronized (ViewCache.class) {
+                views.put(fxml, new SoftReference<>(new CachedView(view, (Refreshable) controller)));
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * Drops a cached view; it is loaded from FXML again the next time it is requested.
+     * @param fxml The path of the FXML file.
+     */
+    public static synchronized void invalidate(String fxml) {
+        views.remove(fxml);
+    }
+
+    /**
+     * Drops every cached view.
+     */
+    public static synchronized void invalidateAll() {
+        views.clear();
+    }
+}